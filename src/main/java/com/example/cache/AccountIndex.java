@@ -0,0 +1,158 @@
+package com.example.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Account;
+import com.example.repository.AccountRepository;
+
+/**
+ * In-memory index of which account IDs and usernames exist, used to answer
+ * existence checks without a database round trip.
+ *
+ * The index is loaded when the application starts and updated on
+ * registration. Accounts are never deleted, so a hit is always correct; a
+ * miss falls back to the database, and IDs the database reports as missing
+ * are remembered for a short time so repeated lookups of bad IDs stay cheap.
+ */
+@Component
+public class AccountIndex {
+    private final AccountRepository accountRepository;
+    private final long missingTtlNanos;
+    private final int missingMaxSize;
+    private final Set<Integer> accountIds = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> usernames = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> missingIds = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AccountIndex(AccountRepository accountRepository,
+        @Value("${app.cache.accounts.missing-ttl:10s}") Duration missingTtl,
+        @Value("${app.cache.accounts.missing-max-size:10000}")
+        int missingMaxSize) {
+        this.accountRepository = accountRepository;
+        this.missingTtlNanos = missingTtl.toNanos();
+        this.missingMaxSize = missingMaxSize;
+    }
+
+    /**
+     * Load every existing account into the index once the database has been
+     * initialized
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Account account : accountRepository.findAll()) {
+            this.add(account);
+        }
+    }
+
+    /**
+     * Record a newly registered or freshly loaded account
+     * 
+     * @param account
+     */
+    public void add(Account account) {
+        accountIds.add(account.getAccountId());
+        usernames.put(account.getUsername(), account.getAccountId());
+        missingIds.remove(account.getAccountId());
+    }
+
+    /**
+     * Check whether an account with the given ID exists
+     * 
+     * @param accountId
+     * @return true if the account exists
+     */
+    public boolean accountExists(int accountId) {
+        if (accountIds.contains(accountId)) {
+            return true;
+        }
+        Long expiresAt = missingIds.get(accountId);
+        if (expiresAt != null) {
+            if (System.nanoTime() - expiresAt < 0) {
+                return false;
+            }
+            missingIds.remove(accountId, expiresAt);
+        }
+        if (accountRepository.existsById(accountId)) {
+            accountIds.add(accountId);
+            return true;
+        }
+        this.rememberMissing(accountId);
+        return false;
+    }
+
+    /**
+     * Check which of the given account IDs exist. IDs the index cannot answer
+     * for are looked up together in a single database query.
+     * 
+     * @param ids
+     * @return the subset of the given IDs that belong to existing accounts
+     */
+    public Set<Integer> existingAccountIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        Set<Integer> unknown = new HashSet<>();
+        long now = System.nanoTime();
+        for (Integer id : ids) {
+            if (id == null) {
+                continue;
+            }
+            if (accountIds.contains(id)) {
+                existing.add(id);
+            } else {
+                Long expiresAt = missingIds.get(id);
+                if (expiresAt == null || now - expiresAt >= 0) {
+                    unknown.add(id);
+                }
+            }
+        }
+        if (!unknown.isEmpty()) {
+            List<Integer> found = accountRepository.findExistingIds(unknown);
+            accountIds.addAll(found);
+            existing.addAll(found);
+            for (Integer id : unknown) {
+                if (!existing.contains(id)) {
+                    this.rememberMissing(id);
+                }
+            }
+        }
+        return existing;
+    }
+
+    private void rememberMissing(int accountId) {
+        if (missingIds.size() >= missingMaxSize) {
+            missingIds.clear();
+        }
+        missingIds.put(accountId, System.nanoTime() + missingTtlNanos);
+    }
+
+    /**
+     * Check whether the given username belongs to an existing account. Misses
+     * are always confirmed against the database, since a stale answer here
+     * would let a duplicate username through.
+     * 
+     * @param username
+     * @return true if the username is taken
+     */
+    public boolean usernameTaken(String username) {
+        if (usernames.containsKey(username)) {
+            return true;
+        }
+        Account account = accountRepository.findAccountByUsername(username);
+        if (account != null) {
+            this.add(account);
+            return true;
+        }
+        return false;
+    }
+}
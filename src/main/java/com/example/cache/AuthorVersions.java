@@ -0,0 +1,56 @@
+package com.example.cache;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.event.MessageEvent;
+
+/**
+ * Version counter per author, bumped whenever one of the author's messages
+ * is created, edited or deleted, so the ETag of an author's message list can
+ * be worked out without reading the list.
+ *
+ * Counters live in memory and restart from zero, so ETags also carry a
+ * random epoch chosen at startup; tags issued by an earlier process never
+ * match. A change whose author is unknown bumps a global counter that is
+ * part of every tag. Counters are bumped from MessageEvents after commit, so
+ * for the moment between a commit and its event a list can be served with
+ * the previous tag.
+ */
+@Component
+public class AuthorVersions {
+    private final String epoch =
+        Long.toHexString(new SecureRandom().nextLong() & Long.MAX_VALUE);
+    private final AtomicLong global = new AtomicLong();
+    private final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Integer postedBy = event.getMessage().getPostedBy();
+        if (postedBy == null) {
+            global.incrementAndGet();
+        } else {
+            versions.computeIfAbsent(postedBy, k -> new AtomicLong())
+                .incrementAndGet();
+        }
+    }
+
+    /**
+     * Strong ETag for the messages posted by an account. Read it before
+     * reading the messages, so a change made meanwhile gives a newer tag
+     * later rather than being hidden behind this one.
+     *
+     * @param accountId
+     * @return quoted entity tag
+     */
+    public String etag(int accountId) {
+        AtomicLong version = versions.get(accountId);
+        return "\"a" + accountId + "-" + epoch + "-" + global.get() + "-"
+            + (version == null ? 0 : version.get()) + "\"";
+    }
+}
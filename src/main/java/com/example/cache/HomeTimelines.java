@@ -0,0 +1,312 @@
+package com.example.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.entity.Follow;
+import com.example.event.MessageEvent;
+import com.example.repository.FollowRepository;
+import com.example.repository.MessageRepository;
+
+/**
+ * Precomputed home timelines: for each account, the IDs of the latest
+ * messages posted by the accounts it follows, newest first.
+ *
+ * The follow graph is kept in memory as a map from each account to its
+ * followers, loaded once the application is ready and updated on follow and
+ * unfollow. When a message is created its ID is pushed onto the timeline of
+ * every follower (fan-out on write), so reading a page costs O(page) however
+ * many accounts are followed. Each timeline is a ring buffer of at most
+ * app.timeline.capacity IDs, filled from the database on first read; pages
+ * that run past the oldest ID a full buffer holds continue from the
+ * database. At most app.timeline.max-timelines buffers are kept, and reads
+ * for further accounts are served from the database alone.
+ *
+ * Timelines are ordered by message ID, i.e. by when messages were stored,
+ * not by their client-supplied posting time.
+ */
+@Component
+public class HomeTimelines {
+    private final FollowRepository followRepository;
+    private final MessageRepository messageRepository;
+    private final int capacity;
+    private final int maxTimelines;
+    private final Map<Integer, Set<Integer>> followers =
+        new ConcurrentHashMap<>();
+    private final Map<Integer, Timeline> timelines = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HomeTimelines(FollowRepository followRepository,
+        MessageRepository messageRepository,
+        @Value("${app.timeline.capacity:800}") int capacity,
+        @Value("${app.timeline.max-timelines:100000}") int maxTimelines) {
+        this.followRepository = followRepository;
+        this.messageRepository = messageRepository;
+        this.capacity = capacity;
+        this.maxTimelines = maxTimelines;
+    }
+
+    /**
+     * Load the follow graph once the database has been initialized
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Follow follow : followRepository.findAll()) {
+            this.followersOf(follow.getFolloweeId())
+                .add(follow.getFollowerId());
+        }
+    }
+
+    /**
+     * Record a follow that has been stored. The follower's timeline is
+     * dropped and rebuilt on its next read to take in the followee's
+     * earlier messages.
+     *
+     * @param followerId
+     * @param followeeId
+     */
+    public void follow(int followerId, int followeeId) {
+        this.followersOf(followeeId).add(followerId);
+        timelines.remove(followerId);
+    }
+
+    /**
+     * Record a follow that has been removed, dropping the follower's
+     * timeline so the followee's messages leave it
+     *
+     * @param followerId
+     * @param followeeId
+     */
+    public void unfollow(int followerId, int followeeId) {
+        Set<Integer> accountFollowers = followers.get(followeeId);
+        if (accountFollowers != null) {
+            accountFollowers.remove(followerId);
+        }
+        timelines.remove(followerId);
+    }
+
+    /**
+     * Fan a created message out to its author's followers, or take a
+     * deleted one back out of their timelines. A message whose deletion
+     * overtakes its creation may linger; readers skip IDs that no longer
+     * exist.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Integer postedBy = event.getMessage().getPostedBy();
+        if (postedBy == null) {
+            return;
+        }
+        Set<Integer> accountFollowers = followers.get(postedBy);
+        if (accountFollowers == null) {
+            return;
+        }
+        for (Integer followerId : accountFollowers) {
+            Timeline timeline = timelines.get(followerId);
+            if (timeline == null) {
+                continue;
+            }
+            switch (event.getType()) {
+                case CREATED:
+                    timeline.push(event.getMessageId());
+                    break;
+                case DELETED:
+                    timeline.remove(event.getMessageId());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Provides one page of an account's home timeline
+     *
+     * @param accountId
+     * @param beforeId only messages with lower IDs are returned
+     * @param limit maximum number of IDs to return
+     * @return message IDs, newest first
+     */
+    public List<Integer> page(int accountId, int beforeId, int limit) {
+        Timeline timeline = this.timeline(accountId);
+        if (timeline == null) {
+            return messageRepository.findHomeTimelineIds(accountId, beforeId,
+                PageRequest.of(0, limit));
+        }
+        List<Integer> ids = new ArrayList<>(limit);
+        if (timeline.page(beforeId, limit, ids) && ids.size() < limit) {
+            int from = ids.isEmpty() ? beforeId : ids.get(ids.size() - 1);
+            ids.addAll(messageRepository.findHomeTimelineIds(accountId, from,
+                PageRequest.of(0, limit - ids.size())));
+        }
+        return ids;
+    }
+
+    /**
+     * @return number of timelines held in memory
+     */
+    public int size() {
+        return timelines.size();
+    }
+
+    /**
+     * Find an account's timeline, filling it from the database if it is not
+     * held yet. The new buffer is locked before it is published, so pushes
+     * and reads that find it wait for it to be filled, and messages created
+     * meanwhile are pushed on top rather than lost.
+     *
+     * @return the timeline, or null if the limit on held timelines is reached
+     */
+    private Timeline timeline(int accountId) {
+        Timeline timeline = timelines.get(accountId);
+        if (timeline != null || timelines.size() >= maxTimelines) {
+            return timeline;
+        }
+        Timeline created = new Timeline(capacity);
+        synchronized (created) {
+            timeline = timelines.putIfAbsent(accountId, created);
+            if (timeline != null) {
+                return timeline;
+            }
+            try {
+                created.fill(messageRepository.findHomeTimelineIds(accountId,
+                    Integer.MAX_VALUE, PageRequest.of(0, capacity)));
+            } catch (RuntimeException e) {
+                timelines.remove(accountId, created);
+                throw e;
+            }
+        }
+        return created;
+    }
+
+    private Set<Integer> followersOf(int accountId) {
+        return followers.computeIfAbsent(accountId,
+            k -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Bounded ring buffer of message IDs in descending order. Logical index
+     * 0 is the newest ID, just behind head; pushing onto a full buffer
+     * overwrites the oldest.
+     */
+    static final class Timeline {
+        private final int[] ring;
+        private int head;
+        private int size;
+        private boolean filled;
+        // whether older IDs than those held may exist in the database
+        private boolean truncated;
+
+        Timeline(int capacity) {
+            this.ring = new int[capacity];
+        }
+
+        /**
+         * Fill an empty buffer
+         *
+         * @param newestFirst at most capacity IDs, in descending order
+         */
+        synchronized void fill(List<Integer> newestFirst) {
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                ring[head] = newestFirst.get(i);
+                head = (head + 1) % ring.length;
+            }
+            size = newestFirst.size();
+            truncated = size == ring.length;
+            filled = true;
+        }
+
+        /**
+         * Add a message ID. IDs normally arrive in ascending order and are
+         * written at head; one that commits late is shifted into place,
+         * which only moves the few IDs newer than it.
+         */
+        synchronized void push(int messageId) {
+            int newer = 0;
+            while (newer < size && this.get(newer) > messageId) {
+                newer++;
+            }
+            if (newer < size && this.get(newer) == messageId) {
+                return;
+            }
+            if (size == ring.length) {
+                truncated = true;
+                if (newer == size) {
+                    return;
+                }
+            } else {
+                size++;
+            }
+            head = (head + 1) % ring.length;
+            for (int i = 0; i < newer; i++) {
+                this.set(i, this.get(i + 1));
+            }
+            this.set(newer, messageId);
+        }
+
+        synchronized void remove(int messageId) {
+            int index = this.indexBelow(messageId + 1);
+            if (index == size || this.get(index) != messageId) {
+                return;
+            }
+            for (int i = index; i < size - 1; i++) {
+                this.set(i, this.get(i + 1));
+            }
+            size--;
+        }
+
+        /**
+         * Copy up to limit IDs below beforeId into out, newest first
+         *
+         * @return true if the page may continue in the database: the buffer
+         * was not filled, or it ran out and older IDs may exist
+         */
+        synchronized boolean page(int beforeId, int limit, List<Integer> out) {
+            if (!filled) {
+                return true;
+            }
+            int i = this.indexBelow(beforeId);
+            while (i < size && out.size() < limit) {
+                out.add(this.get(i++));
+            }
+            return i == size && truncated;
+        }
+
+        /**
+         * Binary search for the logical index of the newest ID below the
+         * given one, or size if there is none
+         */
+        private int indexBelow(int messageId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (this.get(mid) < messageId) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private int get(int index) {
+            return ring[Math.floorMod(head - 1 - index, ring.length)];
+        }
+
+        private void set(int index, int messageId) {
+            ring[Math.floorMod(head - 1 - index, ring.length)] = messageId;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+
+/**
+ * Bounded in-process cache of messages by ID, used as a read-through cache in
+ * front of the message repository.
+ *
+ * Entries expire after a fixed time to live and the oldest entries are
+ * evicted first once the cache is full. Lookups are a single concurrent map
+ * read. Messages are copied on the way in and on the way out, so no caller
+ * ever shares the cached instance.
+ *
+ * A reader that misses loads the row from the database and puts it, and an
+ * edit or delete may commit and invalidate the entry in between, which
+ * would leave the row the reader loaded cached until it expires. To rule
+ * that out, invalidating leaves a tombstone stamped with a generation
+ * number, and readers take a readToken() before querying: a put whose
+ * token is older than the tombstone is dropped. Writers put the row they
+ * committed instead, and the same race between two writers is settled by
+ * version: a put is dropped if the entry already cached has a newer
+ * version, or if the message has been invalidated at all.
+ */
+@Component
+public class MessageCache {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger tombstones = new AtomicInteger();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public MessageCache(
+        @Value("${app.cache.messages.max-size:10000}") int maxSize,
+        @Value("${app.cache.messages.ttl:5m}") Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Look up a cached message
+     *
+     * @param messageId
+     * @return a copy of the cached message if present and not expired,
+     * else null
+     */
+    public Message get(int messageId) {
+        Entry entry = entries.get(messageId);
+        if (entry == null || entry.message == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            this.remove(entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(entry.message);
+    }
+
+    /**
+     * Take before reading a message from the database, and pass to
+     * put(Message, long) with the result
+     *
+     * @return token identifying the invalidations made so far
+     */
+    public long readToken() {
+        return generation.get();
+    }
+
+    /**
+     * Cache a copy of a message just written, replacing any existing entry
+     * unless that holds a newer version or the message has been invalidated
+     * since, which only a delete or a failed write does
+     *
+     * @param message
+     */
+    public void put(Message message) {
+        this.put(message, -1);
+    }
+
+    /**
+     * Cache a copy of a message read from the database, unless the message
+     * has been invalidated since the read token was taken or a newer
+     * version is already cached, and evict the oldest entries if the cache
+     * has grown past its bound
+     *
+     * @param message
+     * @param readToken from readToken(), taken before the message was read,
+     * or -1 for a message just written
+     */
+    public void put(Message message, long readToken) {
+        if (maxSize <= 0 || message.getMessageId() == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        Entry entry = new Entry(message.getMessageId(), copy(message), 0,
+            now + ttlNanos);
+        boolean[] stored = new boolean[1];
+        entries.compute(entry.messageId, (id, existing) -> {
+            if (existing != null && !existing.isExpired(now)
+                && existing.supersedes(message, readToken)) {
+                return existing;
+            }
+            if (existing != null && existing.message == null) {
+                tombstones.decrementAndGet();
+            }
+            stored[0] = true;
+            return entry;
+        });
+        if (stored[0]) {
+            this.track(entry);
+        }
+    }
+
+    /**
+     * Drop the cached copy of a message, if any, and keep reads that started
+     * earlier from putting it back
+     *
+     * @param messageId
+     */
+    public void invalidate(int messageId) {
+        if (maxSize <= 0) {
+            return;
+        }
+        Entry tombstone = new Entry(messageId, null,
+            generation.incrementAndGet(), System.nanoTime() + ttlNanos);
+        entries.compute(messageId, (id, existing) -> {
+            if (existing == null || existing.message != null) {
+                tombstones.incrementAndGet();
+            }
+            return tombstone;
+        });
+        this.track(tombstone);
+    }
+
+    /**
+     * @return number of messages cached, not counting tombstones
+     */
+    public int size() {
+        return entries.size() - tombstones.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Queue a new entry for eviction in insertion order, and evict the
+     * oldest entries if the cache has grown past its bound
+     */
+    private void track(Entry entry) {
+        insertionOrder.add(entry);
+        queued.incrementAndGet();
+        // The queue may also hold entries that were since replaced or
+        // invalidated, so bound it as well as the map.
+        while (entries.size() > maxSize || queued.get() > 2 * maxSize) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            queued.decrementAndGet();
+            if (this.remove(oldest) && oldest.message != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean remove(Entry entry) {
+        if (!entries.remove(entry.messageId, entry)) {
+            return false;
+        }
+        if (entry.message == null) {
+            tombstones.decrementAndGet();
+        }
+        return true;
+    }
+
+    private static Message copy(Message message) {
+        Message copy = new Message(message.getMessageId(),
+            message.getPostedBy(), message.getMessageText(),
+            message.getTimePostedEpoch());
+        copy.setVersion(message.getVersion());
+        return copy;
+    }
+
+    /**
+     * A cached message, or a tombstone left by invalidate() with a null
+     * message and the generation it was made in
+     */
+    private static final class Entry {
+        final int messageId;
+        final Message message;
+        final long generation;
+        final long expiresAt;
+
+        Entry(int messageId, Message message, long generation,
+            long expiresAt) {
+            this.messageId = messageId;
+            this.message = message;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+
+        /**
+         * Whether this entry should be kept over the given message, read
+         * with the given token
+         */
+        boolean supersedes(Message incoming, long readToken) {
+            if (message == null) {
+                return generation > readToken;
+            }
+            return message.getVersion() != null
+                && incoming.getVersion() != null
+                && message.getVersion() > incoming.getVersion();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.event.MessageEvent;
+import com.example.repository.MessageRepository;
+
+/**
+ * Number of messages posted by each account, kept in memory so it can be
+ * read in constant time instead of loading the account's messages.
+ *
+ * Counters are loaded from one grouped count query once the application is
+ * ready, then incremented and decremented atomically from MessageEvents
+ * after their writes commit. Every app.counts.reconcile-interval they are
+ * compared with the database again.
+ *
+ * A write is already visible to the count query before its event reaches
+ * the counter, so a mismatch seen in one round may just be an event still
+ * on its way; correcting it then would count that write twice once the
+ * event lands. A counter is therefore only corrected once the same
+ * mismatch has been seen in two consecutive rounds with no event applied
+ * to it in between, which every event in flight during the first round
+ * would have broken. Drift is repaired one round later than it is found,
+ * and a counter that was busy is left for a later round. The initial load
+ * has no earlier round to confirm against and sets counters directly; a
+ * write racing it is repaired by the rounds that follow.
+ */
+@Component
+public class MessageCounts {
+    private final MessageRepository messageRepository;
+    private final Duration reconcileInterval;
+    private final Map<Integer, Counter> counts = new ConcurrentHashMap<>();
+    /**
+     * Mismatches seen in the last round, awaiting confirmation; only touched
+     * by reconcile()
+     */
+    private final Map<Integer, Mismatch> mismatches = new HashMap<>();
+    private boolean loaded;
+    private final LongAdder corrections = new LongAdder();
+    private final ScheduledExecutorService reconciler;
+
+    @Autowired
+    public MessageCounts(MessageRepository messageRepository,
+        @Value("${app.counts.reconcile-interval:10m}")
+        Duration reconcileInterval) {
+        this.messageRepository = messageRepository;
+        this.reconcileInterval = reconcileInterval;
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "message-count-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load the counters and start periodic reconciliation
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        this.reconcile();
+        reconciler.scheduleWithFixedDelay(() -> {
+            try {
+                this.reconcile();
+            } catch (DataAccessException e) {
+                // a failed round must not cancel the schedule; retry next time
+            }
+        }, reconcileInterval.toMillis(), reconcileInterval.toMillis(),
+            TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reconciler.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        Integer postedBy = event.getMessage().getPostedBy();
+        if (postedBy == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case CREATED:
+                this.counter(postedBy).add(1);
+                break;
+            case DELETED:
+                this.counter(postedBy).add(-1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @param accountId
+     * @return number of messages posted by the account
+     */
+    public int count(int accountId) {
+        Counter counter = counts.get(accountId);
+        return counter == null ? 0 : counter.count.get();
+    }
+
+    /**
+     * Bring the counters in line with the database, correcting mismatches
+     * confirmed by the previous round
+     */
+    public synchronized void reconcile() {
+        Map<Integer, Snapshot> before = new HashMap<>();
+        counts.forEach((accountId, counter) ->
+            before.put(accountId, counter.snapshot()));
+        List<Object[]> rows = messageRepository.countMessagesByPostedBy();
+        Map<Integer, Integer> actual = new HashMap<>();
+        for (Object[] row : rows) {
+            actual.put(((Number) row[0]).intValue(),
+                ((Number) row[1]).intValue());
+        }
+        Set<Integer> accountIds = new HashSet<>(before.keySet());
+        accountIds.addAll(actual.keySet());
+        mismatches.keySet().retainAll(accountIds);
+        for (int accountId : accountIds) {
+            this.correct(accountId,
+                before.getOrDefault(accountId, Snapshot.EMPTY),
+                actual.getOrDefault(accountId, 0));
+        }
+        loaded = true;
+    }
+
+    /**
+     * @return number of counters reconciliation has had to fix, including
+     * setting them on the initial load
+     */
+    public long getCorrections() {
+        return corrections.sum();
+    }
+
+    private void correct(int accountId, Snapshot seen, int actual) {
+        Counter counter = this.counter(accountId);
+        // the counter's stamp must not have moved since before the query,
+        // or an event applied meanwhile may or may not be in the result
+        if (counter.stamp.get() != seen.stamp || seen.count == actual) {
+            mismatches.remove(accountId);
+            return;
+        }
+        Mismatch previous = mismatches.get(accountId);
+        if (loaded && (previous == null || previous.stamp != seen.stamp
+            || previous.actual != actual)) {
+            mismatches.put(accountId, new Mismatch(seen.stamp, actual));
+            return;
+        }
+        mismatches.remove(accountId);
+        if (counter.correct(seen, actual)) {
+            corrections.increment();
+        }
+    }
+
+    private Counter counter(int accountId) {
+        return counts.computeIfAbsent(accountId, k -> new Counter());
+    }
+
+    /**
+     * A message count and a stamp bumped by every change to it, so
+     * reconciliation can tell whether the count moved while the database was
+     * being read. Changes are serialized per counter; reads are not.
+     */
+    private static final class Counter {
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicLong stamp = new AtomicLong();
+
+        synchronized void add(int delta) {
+            count.addAndGet(delta);
+            stamp.incrementAndGet();
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(count.get(), stamp.get());
+        }
+
+        /**
+         * Set the count, only if nothing changed it since the snapshot
+         */
+        synchronized boolean correct(Snapshot seen, int actual) {
+            if (stamp.get() != seen.stamp) {
+                return false;
+            }
+            count.set(actual);
+            stamp.incrementAndGet();
+            return true;
+        }
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, 0);
+
+        final int count;
+        final long stamp;
+
+        Snapshot(int count, long stamp) {
+            this.count = count;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final class Mismatch {
+        final long stamp;
+        final int actual;
+
+        Mismatch(long stamp, int actual) {
+            this.stamp = stamp;
+            this.actual = actual;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.config;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.cache.HomeTimelines;
+import com.example.cache.MessageCache;
+import com.example.cache.MessageCounts;
+import com.example.event.MessageBroadcaster;
+import com.example.ingest.MessageIngestQueue;
+import com.example.security.PasswordHasher;
+import com.example.security.TokenStore;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Meters for the application's own in-memory structures and executors.
+ *
+ * Spring Boot already binds HTTP request timings, JVM and HikariCP pool
+ * meters; service method timings come from ServiceMetricsAspect. Everything
+ * is scraped from /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Hibernate statistics, enabled by hibernate.generate_statistics. Spring
+     * Boot only binds them itself when hibernate-micrometer is on the
+     * classpath, so micrometer-core's binder is used until then.
+     */
+    @Bean
+    @ConditionalOnMissingClass("org.hibernate.stat.HibernateMetrics")
+    @SuppressWarnings("deprecation")
+    MeterBinder hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateMetrics(
+            entityManagerFactory.unwrap(SessionFactory.class),
+            "entityManagerFactory", Tags.empty());
+    }
+
+    @Bean
+    MeterBinder messageCacheMetrics(MessageCache cache) {
+        return registry -> {
+            Gauge.builder("app.cache.messages.size", cache, MessageCache::size)
+                .description("Messages currently cached")
+                .register(registry);
+            FunctionCounter.builder("app.cache.messages.requests", cache,
+                MessageCache::getHits)
+                .tag("result", "hit").register(registry);
+            FunctionCounter.builder("app.cache.messages.requests", cache,
+                MessageCache::getMisses)
+                .tag("result", "miss").register(registry);
+            FunctionCounter.builder("app.cache.messages.evictions", cache,
+                MessageCache::getEvictions)
+                .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder passwordHasherMetrics(PasswordHasher hasher) {
+        return registry -> {
+            new ExecutorServiceMetrics(hasher.getExecutor(), "password-hash",
+                Tags.empty()).bindTo(registry);
+            FunctionTimer.builder("app.password.hash", hasher,
+                PasswordHasher::getHashCount, PasswordHasher::getHashNanos,
+                TimeUnit.NANOSECONDS)
+                .description("PBKDF2 computations")
+                .register(registry);
+            FunctionCounter.builder("app.password.rejected", hasher,
+                PasswordHasher::getRejectedCount)
+                .description("Hashing work shed because the queue was full")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder tokenStoreMetrics(TokenStore tokenStore) {
+        return registry -> Gauge.builder("app.tokens.active", tokenStore,
+            TokenStore::size)
+            .description("Session tokens held, including expired ones not yet"
+                + " swept")
+            .register(registry);
+    }
+
+    @Bean
+    MeterBinder messageCountsMetrics(MessageCounts messageCounts) {
+        return registry -> FunctionCounter.builder("app.counts.corrections",
+            messageCounts, MessageCounts::getCorrections)
+            .description("Per-account message counters fixed by"
+                + " reconciliation")
+            .register(registry);
+    }
+
+    @Bean
+    MeterBinder homeTimelinesMetrics(HomeTimelines homeTimelines) {
+        return registry -> Gauge.builder("app.timeline.held", homeTimelines,
+            HomeTimelines::size)
+            .description("Home timelines held in memory")
+            .register(registry);
+    }
+
+    @Bean
+    MeterBinder messageIngestMetrics(MessageIngestQueue ingestQueue) {
+        return registry -> {
+            Gauge.builder("app.ingest.queue.size", ingestQueue,
+                MessageIngestQueue::getQueueSize)
+                .description("Messages waiting to be written behind")
+                .register(registry);
+            FunctionCounter.builder("app.ingest.messages", ingestQueue,
+                MessageIngestQueue::getWrittenCount)
+                .tag("result", "written").register(registry);
+            FunctionCounter.builder("app.ingest.messages", ingestQueue,
+                MessageIngestQueue::getFailedCount)
+                .tag("result", "failed").register(registry);
+            FunctionCounter.builder("app.ingest.messages", ingestQueue,
+                MessageIngestQueue::getRejectedCount)
+                .tag("result", "rejected").register(registry);
+            FunctionCounter.builder("app.ingest.flushes", ingestQueue,
+                MessageIngestQueue::getFlushCount)
+                .description("Group commits; messages written per flush is"
+                    + " the batching achieved")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder messageBroadcasterMetrics(MessageBroadcaster broadcaster) {
+        return registry -> {
+            Gauge.builder("app.stream.subscribers", broadcaster,
+                MessageBroadcaster::size)
+                .description("Open GET /messages/stream subscriptions")
+                .register(registry);
+            FunctionCounter.builder("app.stream.evictions", broadcaster,
+                MessageBroadcaster::getEvictions)
+                .description("Subscribers disconnected for falling behind")
+                .register(registry);
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every public method of the service classes into the "app.service"
+ * timer, tagged with the class, method, outcome (success or error) and
+ * exception name. Each tag combination's count is the number of calls, so
+ * calls and errors per method come from the same meter as latency. A
+ * percentile histogram is published so latency quantiles can be aggregated
+ * across instances.
+ *
+ * Exceptions count as errors even when they are expected, such as
+ * UsernameTakenException, since the exception tag tells them apart.
+ *
+ * Timers are registered on first use and kept per method, so an advised
+ * call costs one map lookup rather than a registry lookup.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+    static final String METRIC_NAME = "app.service";
+
+    private final MeterRegistry registry;
+    private final Map<Method, MethodTimers> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.example.service..*.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        Class<? extends Throwable> exception = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable t) {
+            exception = t.getClass();
+            throw t;
+        } finally {
+            MethodTimers methodTimers = timers.computeIfAbsent(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(),
+                method -> new MethodTimers(joinPoint));
+            sample.stop(exception == null
+                ? methodTimers.success : methodTimers.error(exception));
+        }
+    }
+
+    /**
+     * The timers of one service method: its successful calls, and its
+     * failed calls per exception type
+     */
+    private final class MethodTimers {
+        final String className;
+        final String methodName;
+        final Timer success;
+        final Map<Class<?>, Timer> errors = new ConcurrentHashMap<>();
+
+        MethodTimers(ProceedingJoinPoint joinPoint) {
+            this.className =
+                joinPoint.getSignature().getDeclaringType().getSimpleName();
+            this.methodName = joinPoint.getSignature().getName();
+            this.success = this.register("success", "none");
+        }
+
+        Timer error(Class<? extends Throwable> exception) {
+            return errors.computeIfAbsent(exception,
+                type -> this.register("error", type.getSimpleName()));
+        }
+
+        private Timer register(String outcome, String exception) {
+            return Timer.builder(METRIC_NAME)
+                .description("Service method calls")
+                .tag("class", className)
+                .tag("method", methodName)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(registry);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.jdbc.CountingDataSource;
+
+/**
+ * Routes the application DataSource through CountingDataSource so that
+ * SqlStatisticsFilter can count the statements each request runs. Enabled
+ * unless app.sql-stats.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sql-stats.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class SqlStatisticsConfig {
+
+    /**
+     * Static so it is registered before the DataSource is created
+     */
+    @Bean
+    static BeanPostProcessor countingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean,
+                String beanName) {
+                return bean instanceof DataSource
+                    ? CountingDataSource.wrap((DataSource) bean) : bean;
+            }
+        };
+    }
+}
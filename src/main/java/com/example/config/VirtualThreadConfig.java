@@ -0,0 +1,60 @@
+package com.example.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Opt-in mode, enabled with app.threads.virtual=true, that runs Tomcat
+ * request processing and Spring MVC async work (such as streamed exports) on
+ * virtual threads instead of pooled platform threads. Blocking JDBC calls
+ * then park a cheap virtual thread, so concurrency is limited by the
+ * connection pool (spring.datasource.hikari.maximum-pool-size) rather than
+ * by Tomcat's thread pool.
+ *
+ * The project still compiles for Java 11, so the executor is looked up
+ * reflectively; enabling the mode on a runtime older than Java 21 fails
+ * startup instead of silently falling back.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+    private final ExecutorService executor = newVirtualThreadExecutor();
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new ConcurrentTaskExecutor(executor));
+    }
+
+    /**
+     * Stop accepting new tasks when the context closes; Tomcat has already
+     * stopped by then
+     */
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService virtualThreadExecutor() {
+        return executor;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("app.threads.virtual=true"
+                + " requires Java 21 or later, running on "
+                + System.getProperty("java.version"), e);
+        }
+    }
+}
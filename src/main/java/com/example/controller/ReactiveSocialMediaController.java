@@ -0,0 +1,568 @@
+package com.example.controller;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.dto.AccountStats;
+import com.example.dto.MessagePage;
+import com.example.dto.MessageSearchResult;
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.example.event.MessageBroadcaster;
+import com.example.event.MessageEvent;
+import com.example.exception.HashingUnavailableException;
+import com.example.exception.IngestQueueFullException;
+import com.example.exception.InvalidCursorException;
+import com.example.exception.UsernameTakenException;
+import com.example.exception.VersionConflictException;
+import com.example.service.AccountService;
+import com.example.service.MessageService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux variant of SocialMediaController, active with the "reactive"
+ * profile, serving the same routes with the same status codes from a
+ * handful of Netty event loop threads.
+ *
+ * The services and repositories are still blocking JPA, so every call into
+ * them is moved onto a bounded scheduler sized to the connection pool; the
+ * event loop never blocks and no more queries run at once than there are
+ * connections. Each scheduler thread queues at most
+ * app.reactive.jdbc-queue-capacity calls, and calls past that are answered
+ * with status 503 rather than queued without bound. Message lists requested
+ * with a cursor or limit are answered one page at a time, as by the servlet
+ * controller. Full lists are produced by walking the keyset-paginated
+ * queries one page at a time as the client consumes them, so a slow client
+ * holds back further queries instead of buffering the whole list.
+ *
+ * Session tokens are not supported: TokenAuthenticationFilter is a servlet
+ * filter, so /login issues no token and requests are never resolved to an
+ * account, which leaves the ownership checks of the servlet controller
+ * out. Clients identify accounts in request bodies, as before tokens.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveSocialMediaController {
+
+    @Autowired
+    AccountService accountService;
+    @Autowired
+    MessageService messageService;
+    @Autowired
+    MessageBroadcaster messageBroadcaster;
+
+    @Value("${app.stream.buffer-size:256}")
+    int streamBufferSize;
+
+    private final Scheduler jdbcScheduler;
+
+    @Autowired
+    public ReactiveSocialMediaController(
+        @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+        int poolSize,
+        @Value("${app.reactive.jdbc-queue-capacity:100}") int queueCapacity) {
+        this.jdbcScheduler = Schedulers.newBoundedElastic(
+            poolSize, queueCapacity, "jdbc");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jdbcScheduler.dispose();
+    }
+
+    /**
+     * Handler for account registration. Same behaviour as
+     * SocialMediaController.registerAccount.
+     *
+     * @param account
+     * @return Mono of the ResponseEntity
+     */
+    @PostMapping("/register")
+    Mono<ResponseEntity<?>> registerAccount(@RequestBody Account account) {
+        return blocking(() -> {
+            try {
+                Account returnedAccount = accountService.registerAccount(
+                    account);
+                if (returnedAccount == null) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Client error");
+                } else {
+                    return ResponseEntity.status(HttpStatus.OK).body(account);
+                }
+            } catch (UsernameTakenException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Conflict");
+            } catch (HashingUnavailableException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Service unavailable");
+            }
+        });
+    }
+
+    /**
+     * Handler for verifying login credentials. Same behaviour as
+     * SocialMediaController.verifyLogin, except that no session token is
+     * issued, since this profile has nothing to resolve one.
+     *
+     * @param account
+     * @return Mono of the ResponseEntity
+     */
+    @PostMapping("/login")
+    Mono<ResponseEntity<?>> verifyLogin(@RequestBody Account account) {
+        return blocking(() -> {
+            try {
+                Account returnedAccount = accountService.verifyLogin(account);
+                if (returnedAccount == null) {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body("Unauthorized");
+                } else {
+                    return ResponseEntity.status(HttpStatus.OK)
+                        .body(returnedAccount);
+                }
+            } catch (HashingUnavailableException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Service unavailable");
+            }
+        });
+    }
+
+    /**
+     * Handler for posting a new message. Same behaviour as
+     * SocialMediaController.postMessage.
+     *
+     * @param message
+     * @return Mono of the ResponseEntity
+     */
+    @PostMapping("/messages")
+    Mono<ResponseEntity<?>> postMessage(@RequestBody Message message) {
+        return blocking(() -> {
+            try {
+                Message returnedMessage = messageService.createMessage(message);
+                if (returnedMessage == null) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Client error");
+                } else {
+                    return ResponseEntity.status(HttpStatus.OK)
+                        .body(returnedMessage);
+                }
+            } catch (IngestQueueFullException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Service unavailable");
+            }
+        });
+    }
+
+    /**
+     * Handler for retrieving all messages, in ID order, streamed page by page.
+     * If since or until is given, only messages posted in that time range
+     * are streamed, oldest first. If cursor or limit is given, one page is
+     * returned instead, as by SocialMediaController.getAllMessages.
+     *
+     * @param since earliest posting time in epoch seconds, inclusive
+     * @param until latest posting time in epoch seconds, exclusive
+     * @param cursor
+     * @param limit
+     * @return Mono of the ResponseEntity, with a Flux of all messages or one
+     * page in body
+     */
+    @GetMapping(value = "/messages", produces = {
+        MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Mono<ResponseEntity<?>> getAllMessages(
+        @RequestParam(required = false) Long since,
+        @RequestParam(required = false) Long until,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit) {
+        if (since != null || until != null) {
+            return messages(since, until, cursor, limit, (after, size) ->
+                messageService.getMessagePageInTimeRange(
+                    null, since, until, after, size));
+        }
+        return messages(since, until, cursor, limit,
+            messageService::getMessagePage);
+    }
+
+    /**
+     * Handler for searching message text. Same behaviour as
+     * SocialMediaController.searchMessages.
+     *
+     * @param q
+     * @param offset
+     * @param limit
+     * @return Mono of the ResponseEntity
+     */
+    @GetMapping("/messages/search")
+    Mono<ResponseEntity<?>> searchMessages(@RequestParam String q,
+        @RequestParam(required = false) Integer offset,
+        @RequestParam(required = false) Integer limit) {
+        return blocking(() -> {
+            MessageSearchResult result =
+                messageService.searchMessages(q, offset, limit);
+            if (result == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Client error");
+            } else {
+                return ResponseEntity.status(HttpStatus.OK).body(result);
+            }
+        });
+    }
+
+    /**
+     * Handler for following message changes as server-sent events. Same
+     * events as SocialMediaController.streamMessages; the stream ends with
+     * an error once the client has app.stream.buffer-size events it has not
+     * taken, and otherwise lasts until the client disconnects.
+     *
+     * @return Flux of message events
+     */
+    @GetMapping(value = "/messages/stream",
+        produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<ServerSentEvent<Message>> streamMessages() {
+        return Flux.<ServerSentEvent<Message>>create(sink -> {
+            MessageBroadcaster.Subscription subscription =
+                messageBroadcaster.subscribe(new MessageBroadcaster.Sink() {
+                    @Override
+                    public void send(MessageEvent event) {
+                        sink.next(ServerSentEvent.builder(event.getMessage())
+                            .event(event.getType().name()
+                                .toLowerCase(Locale.ROOT))
+                            .id(String.valueOf(event.getMessageId()))
+                            .build());
+                    }
+
+                    @Override
+                    public void close() {
+                        sink.complete();
+                    }
+                });
+            sink.onDispose(subscription::cancel);
+        }).onBackpressureBuffer(streamBufferSize);
+    }
+
+    /**
+     * Handler for retrieving a message by its ID. Same behaviour as
+     * SocialMediaController.getMessageById, including conditional requests;
+     * a cached message's tag is checked on the event loop.
+     *
+     * @param id
+     * @param exchange
+     * @return Mono of the ResponseEntity
+     */
+    @GetMapping("/messages/{id}")
+    Mono<ResponseEntity<?>> getMessageById(@PathVariable int id,
+        ServerWebExchange exchange) {
+        String cachedETag = messageService.getCachedMessageETag(id);
+        if (cachedETag != null && exchange.checkNotModified(cachedETag)) {
+            return null;
+        }
+        return blocking(() -> {
+            Message returnedMessage = messageService.getMessageById(id);
+            if (returnedMessage == null) {
+                return ResponseEntity.status(HttpStatus.OK).body("");
+            }
+            return ResponseEntity.status(HttpStatus.OK)
+                .eTag(messageService.getMessageETag(returnedMessage))
+                .body(returnedMessage);
+        });
+    }
+
+    /**
+     * Handler for deleting a message with the given ID. Same behaviour as
+     * SocialMediaController.deleteMessageById.
+     *
+     * @param id
+     * @return Mono of the ResponseEntity
+     */
+    @DeleteMapping("/messages/{id}")
+    Mono<ResponseEntity<?>> deleteMessageById(@PathVariable int id) {
+        return blocking(() -> {
+            int deleted = messageService.deleteMessageWithId(id);
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(deleted == 0 ? "" : deleted);
+        });
+    }
+
+    /**
+     * Handler for deleting many messages at once. Same behaviour as
+     * SocialMediaController.deleteMessagesByIds.
+     *
+     * @param ids
+     * @return Mono of the ResponseEntity
+     */
+    @DeleteMapping("/messages")
+    Mono<ResponseEntity<?>> deleteMessagesByIds(
+        @RequestParam List<Integer> ids) {
+        return blocking(() -> {
+            Integer deleted = messageService.deleteMessagesWithIds(ids);
+            if (deleted == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Client error");
+            } else {
+                return ResponseEntity.status(HttpStatus.OK).body(deleted);
+            }
+        });
+    }
+
+    /**
+     * Handler to edit the message text of an existing message with the given
+     * ID. Same behaviour as SocialMediaController.patchMessageWithId,
+     * including If-Match and body versions, without session tokens.
+     *
+     * @param id
+     * @param message
+     * @param ifMatch
+     * @return Mono of the ResponseEntity
+     */
+    @PatchMapping("/messages/{id}")
+    Mono<ResponseEntity<?>> patchMessageWithId(
+        @PathVariable int id, @RequestBody Message message,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+        String ifMatch) {
+        return blocking(() -> {
+            boolean precondition = ifMatch != null;
+            int updated;
+            try {
+                Integer expectedVersion = precondition
+                    ? messageService.getVersionForIfMatch(id, ifMatch)
+                    : message.getVersion();
+                updated = messageService.editMessageWithId(
+                    id, message.getMessageText(), expectedVersion);
+            } catch (VersionConflictException e) {
+                return precondition
+                    ? ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .body("Precondition failed")
+                    : ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body("Conflict");
+            }
+            if (updated == 0 && precondition
+                && messageService.getMessageById(id) == null) {
+                // no tag matches a message that does not exist
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body("Precondition failed");
+            }
+            if (updated == 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Client error");
+            } else {
+                return ResponseEntity.status(HttpStatus.OK).body(updated);
+            }
+        });
+    }
+
+    /**
+     * Handler to retrieve all messages posted by a given user, newest first,
+     * streamed page by page. If since or until is given, only messages
+     * posted in that time range are streamed, oldest first. If cursor or
+     * limit is given, one page is returned instead. Conditional requests are
+     * answered as by SocialMediaController.getAllMessagesByUser.
+     *
+     * @param accountId
+     * @param since earliest posting time in epoch seconds, inclusive
+     * @param until latest posting time in epoch seconds, exclusive
+     * @param cursor
+     * @param limit
+     * @param exchange
+     * @return Mono of the ResponseEntity, with a Flux of all messages posted
+     * by the given account or one page in body
+     */
+    @GetMapping(value = "/accounts/{accountId}/messages", produces = {
+        MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    Mono<ResponseEntity<?>> getAllMessagesByUser(@PathVariable int accountId,
+        @RequestParam(required = false) Long since,
+        @RequestParam(required = false) Long until,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit,
+        ServerWebExchange exchange) {
+        String etag;
+        try {
+            etag = messageService.getMessagesByUserETag(
+                accountId, since, until, cursor, limit);
+        } catch (InvalidCursorException e) {
+            etag = null;
+        }
+        if (etag == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error"));
+        }
+        if (exchange.checkNotModified(etag)) {
+            return null;
+        }
+        if (since != null || until != null) {
+            return messages(since, until, cursor, limit, (after, size) ->
+                messageService.getMessagePageInTimeRange(
+                    accountId, since, until, after, size));
+        }
+        return messages(since, until, cursor, limit, (after, size) ->
+            messageService.getMessagePageByUser(accountId, after, size));
+    }
+
+    /**
+     * Handler to retrieve summary figures for an account. Same behaviour as
+     * SocialMediaController.getAccountStats.
+     *
+     * @param accountId
+     * @return Mono of the ResponseEntity
+     */
+    @GetMapping("/accounts/{accountId}/stats")
+    Mono<ResponseEntity<?>> getAccountStats(@PathVariable int accountId) {
+        return blocking(() -> {
+            AccountStats stats = accountService.getAccountStats(accountId);
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(stats == null ? "" : stats);
+        });
+    }
+
+    /**
+     * Handler for following an account. Same behaviour as
+     * SocialMediaController.followAccount, without session tokens.
+     *
+     * @param accountId
+     * @param followeeId
+     * @return Mono of the ResponseEntity
+     */
+    @PutMapping("/accounts/{accountId}/following/{followeeId}")
+    Mono<ResponseEntity<?>> followAccount(@PathVariable int accountId,
+        @PathVariable int followeeId) {
+        return blocking(() -> {
+            if (!accountService.follow(accountId, followeeId)) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Client error");
+            }
+            return ResponseEntity.status(HttpStatus.OK).body(1);
+        });
+    }
+
+    /**
+     * Handler for unfollowing an account. Same behaviour as
+     * SocialMediaController.unfollowAccount, without session tokens.
+     *
+     * @param accountId
+     * @param followeeId
+     * @return Mono of the ResponseEntity
+     */
+    @DeleteMapping("/accounts/{accountId}/following/{followeeId}")
+    Mono<ResponseEntity<?>> unfollowAccount(@PathVariable int accountId,
+        @PathVariable int followeeId) {
+        return blocking(() -> {
+            int removed = accountService.unfollow(accountId, followeeId);
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(removed == 0 ? "" : removed);
+        });
+    }
+
+    /**
+     * Handler to retrieve one page of an account's home timeline. Same
+     * behaviour as SocialMediaController.getHomeTimeline.
+     *
+     * @param accountId
+     * @param cursor
+     * @param limit
+     * @return Mono of the ResponseEntity
+     */
+    @GetMapping("/accounts/{accountId}/timeline")
+    Mono<ResponseEntity<?>> getHomeTimeline(@PathVariable int accountId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit) {
+        return blocking(() -> {
+            try {
+                MessagePage page = messageService.getHomeTimelinePage(
+                    accountId, cursor, limit);
+                return ResponseEntity.status(HttpStatus.OK)
+                    .body(page == null ? "" : page);
+            } catch (InvalidCursorException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Client error");
+            }
+        });
+    }
+
+    /**
+     * Answer a message list request: with a cursor or limit, one page, or
+     * status 400 if the cursor or time range is invalid; otherwise every
+     * message, streamed page by page, or status 400 if the time range is
+     * inverted
+     */
+    private Mono<ResponseEntity<?>> messages(Long since, Long until,
+        String cursor, Integer limit, PageQuery query) {
+        if (cursor != null || limit != null) {
+            return blocking(() -> {
+                try {
+                    MessagePage page = query.fetch(cursor, limit);
+                    if (page == null) {
+                        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body("Client error");
+                    }
+                    return ResponseEntity.status(HttpStatus.OK).body(page);
+                } catch (InvalidCursorException e) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("Client error");
+                }
+            });
+        }
+        if (since != null && until != null && since > until) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error"));
+        }
+        return Mono.just(ResponseEntity.status(HttpStatus.OK)
+            .body(pages(query)));
+    }
+
+    /**
+     * Run a blocking call on the JDBC scheduler, or fail with status 503 if
+     * its queue is full
+     */
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jdbcScheduler)
+            .onErrorMap(RejectedExecutionException.class,
+                e -> new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE, "Service unavailable", e));
+    }
+
+    /**
+     * Walk a keyset-paginated query, fetching the next page only once the
+     * subscriber has requested past the current one. Pages are prefetched
+     * one at a time; the default prefetch would have expand run many
+     * queries ahead of demand.
+     */
+    private Flux<Message> pages(PageQuery query) {
+        return blocking(() -> query.fetch(null, null))
+            .expand(page -> page.getNextCursor() == null
+                ? Mono.empty()
+                : blocking(() -> query.fetch(page.getNextCursor(), null)))
+            .concatMapIterable(MessagePage::getMessages, 1);
+    }
+
+    @FunctionalInterface
+    private interface PageQuery {
+        MessagePage fetch(String cursor, Integer limit)
+            throws InvalidCursorException;
+    }
+}
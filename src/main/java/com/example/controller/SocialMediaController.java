@@ -1,9 +1,16 @@
 package com.example.controller;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,12 +18,30 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.dto.AccountStats;
+import com.example.dto.MessageBatchResult;
+import com.example.dto.MessagePage;
+import com.example.dto.MessageSearchResult;
 import com.example.entity.Account;
 import com.example.entity.Message;
+import com.example.event.MessageBroadcaster;
+import com.example.event.MessageEvent;
+import com.example.exception.HashingUnavailableException;
+import com.example.exception.IngestQueueFullException;
+import com.example.exception.InvalidCursorException;
 import com.example.exception.UsernameTakenException;
+import com.example.exception.VersionConflictException;
+import com.example.security.TokenAuthenticationFilter;
 import com.example.service.AccountService;
 import com.example.service.MessageService;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -28,18 +53,27 @@ import com.fasterxml.jackson.core.JsonProcessingException;
  * refer to prior mini-project labs and lecture materials for guidance on how a controller may be built.
  */
 @RestController
+@Profile("!reactive")
 public class SocialMediaController {
 
     @Autowired
     AccountService accountService;
     @Autowired
     MessageService messageService;
+    @Autowired
+    MessageBroadcaster messageBroadcaster;
+
+    @Value("${app.stream.timeout:30m}")
+    Duration streamTimeout;
+
+    static final String AUTH_TOKEN_HEADER = "X-Auth-Token";
 
     /**
      * Handler for account registration.
      * Register the account represented in the request body.
      * The response will have the added account in the response body and status
-     * code 200 if successful, or status code 400 otherwise.
+     * code 200 if successful, status code 409 if the username is taken, 503 if
+     * password hashing is currently being shed, or status code 400 otherwise.
      * 
      * @param account
      * @return ResponseEntity with appropriate status code and account in body
@@ -57,13 +91,19 @@ public class SocialMediaController {
             }
         } catch (UsernameTakenException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Conflict");
+        } catch (HashingUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Service unavailable");
         }
     }
 
     /**
      * Handler for verifying login credentials.
      * Response will contain the corresponding account in its body with status
-     * code 200 if login successful, otherwise gives status code 401.
+     * code 200 if login successful, otherwise gives status code 401. Gives
+     * status code 503 if password checks are currently being shed. A
+     * successful login also issues a session token in the X-Auth-Token
+     * header, which can be sent back as "Authorization: Bearer token".
      * 
      * @param account
      * @return ResponseEntity with appropriate status code and account in body
@@ -71,27 +111,56 @@ public class SocialMediaController {
      */
     @PostMapping("/login")
     ResponseEntity<?> verifyLogin(@RequestBody Account account) {
-        Account returnedAccount = accountService.verifyLogin(account);
-        if (returnedAccount == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                .body("Unauthorized");
-        } else {
-            return ResponseEntity.status(HttpStatus.OK).body(returnedAccount);
+        try {
+            Account returnedAccount = accountService.verifyLogin(account);
+            if (returnedAccount == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Unauthorized");
+            } else {
+                return ResponseEntity.status(HttpStatus.OK)
+                    .header(AUTH_TOKEN_HEADER,
+                        accountService.issueToken(returnedAccount))
+                    .body(returnedAccount);
+            }
+        } catch (HashingUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Service unavailable");
         }
     }
 
     /**
      * Handler for posting a new message.
      * Response body contains the new message in its body with status code 200
-     * if successful, otherwise gives status code 400.
+     * if successful, otherwise gives status code 400. With a session token the
+     * message is posted by the token's account, and status code 403 is given
+     * if the body names a different account. Gives status code 503 if
+     * messages are being written behind and the queue is full.
      * 
      * @param message
+     * @param accountId account resolved from the session token, if any
      * @return ResponseEntity with appropriate status code and message in body
      * if successful
      */
     @PostMapping("/messages")
-    ResponseEntity<?> postMessage(@RequestBody Message message) {
-        Message returnedMessage = messageService.createMessage(message);
+    ResponseEntity<?> postMessage(@RequestBody Message message,
+        @RequestAttribute(name = TokenAuthenticationFilter.ACCOUNT_ID_ATTRIBUTE,
+            required = false) Integer accountId) {
+        Message returnedMessage;
+        try {
+            if (accountId == null) {
+                returnedMessage = messageService.createMessage(message);
+            } else if (message.getPostedBy() != null
+                && !message.getPostedBy().equals(accountId)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("Forbidden");
+            } else {
+                returnedMessage = messageService.createMessageAs(
+                    accountId, message);
+            }
+        } catch (IngestQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Service unavailable");
+        }
         if (returnedMessage == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body("Client error");
@@ -100,36 +169,183 @@ public class SocialMediaController {
         }
     }
 
+    /**
+     * Handler for posting a batch of new messages.
+     * Response body contains one result per message, in request order, each
+     * holding the created message and status 200, or status 400 if that
+     * message was invalid. The response itself has status code 200, or 400 if
+     * the batch is empty or too large.
+     * 
+     * @param messages
+     * @return ResponseEntity with appropriate status code and per-message
+     * results in body if accepted
+     */
+    @PostMapping("/messages/batch")
+    ResponseEntity<?> postMessages(@RequestBody List<Message> messages) {
+        List<MessageBatchResult> results =
+            messageService.createMessages(messages);
+        if (results == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        } else {
+            return ResponseEntity.status(HttpStatus.OK).body(results);
+        }
+    }
+
     /**
      * Handler for retrieving all messages.
-     * Response body contains a list of all messages with a status code of 200.
+     * Without query parameters the response body contains a list of all
+     * messages with a status code of 200. If a cursor or limit is given, the
+     * body instead contains one bounded page of messages in ID order along
+     * with the cursor for the next page, or status code 400 if the cursor is
+     * invalid. If since or until is given, the page holds the messages
+     * posted in that time range, oldest first, and status code 400 is also
+     * given if since is after until.
      * 
-     * @return List of all messages
+     * @param since earliest posting time in epoch seconds, inclusive
+     * @param until latest posting time in epoch seconds, exclusive
+     * @param cursor token from a previous page, omitted for the first page
+     * @param limit maximum number of messages in the page
+     * @return ResponseEntity with the list of messages or the requested page
      */
     @GetMapping("/messages")
-    List<Message> getAllMessages() {
-        return messageService.getAllMessages();
+    ResponseEntity<?> getAllMessages(
+        @RequestParam(required = false) Long since,
+        @RequestParam(required = false) Long until,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit) {
+        if (since != null || until != null) {
+            return this.timeRangePage(null, since, until, cursor, limit);
+        }
+        if (cursor == null && limit == null) {
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(messageService.getAllMessages());
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(messageService.getMessagePage(cursor, limit));
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        }
+    }
+
+    /**
+     * Handler for exporting all messages as newline-delimited JSON.
+     * Selected when the client accepts application/x-ndjson; messages are
+     * streamed to the response as they are read instead of being collected
+     * into a list first.
+     * 
+     * @return ResponseEntity with status 200 streaming one message per line
+     */
+    @GetMapping(value = "/messages",
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> exportAllMessages() {
+        return ResponseEntity.status(HttpStatus.OK)
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> messageService.exportMessages(null, out));
+    }
+
+    /**
+     * Handler for searching message text, e.g. GET /messages/search?q=hello.
+     * Response body contains one page of the messages containing every word
+     * of the query, best match first, with the total number of matches and
+     * the offset of the next page, with status code 200. Gives status code
+     * 400 if the query is blank or the offset is out of range.
+     * 
+     * @param q words to search for
+     * @param offset number of best matches to skip, omitted for the first page
+     * @param limit maximum number of messages in the page
+     * @return ResponseEntity with the appropriate status and the page of
+     * results in body if successful
+     */
+    @GetMapping("/messages/search")
+    ResponseEntity<?> searchMessages(@RequestParam String q,
+        @RequestParam(required = false) Integer offset,
+        @RequestParam(required = false) Integer limit) {
+        MessageSearchResult result =
+            messageService.searchMessages(q, offset, limit);
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        } else {
+            return ResponseEntity.status(HttpStatus.OK).body(result);
+        }
+    }
+
+    /**
+     * Handler for following new, edited and deleted messages as they happen,
+     * instead of polling GET /messages. Responds with a text/event-stream in
+     * which each change is an event named created, updated or deleted, with
+     * the message as JSON data; deleted messages carry only their ID and
+     * author. The stream is closed after app.stream.timeout, or if the client
+     * falls too far behind or stops reading, and the client should then
+     * reconnect. It opens with a comment line, so the response starts before
+     * the first change.
+     * 
+     * @return SseEmitter streaming message events
+     * @throws IOException never in practice; sends before the response starts
+     * are buffered
+     */
+    @GetMapping(value = "/messages/stream",
+        produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter streamMessages() throws IOException {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        emitter.send(SseEmitter.event().comment("subscribed"));
+        MessageBroadcaster.Subscription subscription =
+            messageBroadcaster.subscribe(new MessageBroadcaster.Sink() {
+                @Override
+                public void send(MessageEvent event) throws IOException {
+                    emitter.send(SseEmitter.event()
+                        .name(event.getType().name().toLowerCase(Locale.ROOT))
+                        .id(String.valueOf(event.getMessageId()))
+                        .data(event.getMessage(), MediaType.APPLICATION_JSON));
+                }
+
+                @Override
+                public void close() {
+                    emitter.complete();
+                }
+            });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
     }
 
     /**
      * Handler for retrieving a message by its ID.
      * Response body contains a the message if found with status code 200.
+     * The message's ETag is sent with it, and a request whose If-None-Match
+     * holds the current tag gets status code 304 instead; when the message
+     * is cached that is answered without reading the database.
      * 
      * @param id
+     * @param request
      * @return ResponseEntity with status 200 and the message in body if found,
      * otherwise empty body
      */
     @GetMapping("/messages/{id}")
-    ResponseEntity<?> getMessageById(@PathVariable int id) {
+    ResponseEntity<?> getMessageById(@PathVariable int id,
+        WebRequest request) {
+        String cachedETag = messageService.getCachedMessageETag(id);
+        if (cachedETag != null && request.checkNotModified(cachedETag)) {
+            return null;
+        }
         Message returnedMessage = messageService.getMessageById(id);
+        if (returnedMessage == null) {
+            return ResponseEntity.status(HttpStatus.OK).body("");
+        }
+        // a 304 is still sent if the tag matches once the message is loaded
         return ResponseEntity.status(HttpStatus.OK)
-            .body(returnedMessage == null ? "" : returnedMessage);
+            .eTag(messageService.getMessageETag(returnedMessage))
+            .body(returnedMessage);
     }
 
     /**
      * Handler for deleting a message with the given ID.
-     * Response body contains the deleted message if deletion successful, with
-     * status code 200.
+     * Response body contains the number of rows deleted if deletion
+     * successful, with status code 200.
      * 
      * @param id
      * @return ResponseEntity with status 200 and the number of lines modified,
@@ -137,44 +353,285 @@ public class SocialMediaController {
      */
     @DeleteMapping("/messages/{id}")
     ResponseEntity<?> deleteMessageById(@PathVariable int id) {
-        Message returnedMessage = messageService.deleteMessageWithId(id);
+        int deleted = messageService.deleteMessageWithId(id);
         return ResponseEntity.status(HttpStatus.OK)
-            .body(returnedMessage == null ? "" : 1);
+            .body(deleted == 0 ? "" : deleted);
+    }
+
+    /**
+     * Handler for deleting many messages at once, e.g. DELETE
+     * /messages?ids=1,2,3. Response body contains the number of rows deleted
+     * with status code 200, or status code 400 if no IDs or too many IDs
+     * were given.
+     * 
+     * @param ids
+     * @return ResponseEntity with the appropriate status and the number of
+     * lines modified in the body if successful
+     */
+    @DeleteMapping("/messages")
+    ResponseEntity<?> deleteMessagesByIds(@RequestParam List<Integer> ids) {
+        Integer deleted = messageService.deleteMessagesWithIds(ids);
+        if (deleted == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        } else {
+            return ResponseEntity.status(HttpStatus.OK).body(deleted);
+        }
     }
 
     /**
      * Handler to edit the message text of an existing message with the given ID.
-     * Response body contains the edited message with status code 200 if
-     * successful, otherwise gives status code 400.
+     * Response body contains the number of rows modified with status code 200
+     * if successful, otherwise gives status code 400. With a session token
+     * only messages posted by the token's account can be edited.
+     * Edits can be made conditional, so a concurrent edit is not silently
+     * overwritten: with an If-Match header holding the ETag from GET
+     * /messages/{id}, status code 412 is given if the message has changed
+     * since; with a version in the request body instead, status code 409.
+     * If-Match follows RFC 9110: * requires the message to exist, a list
+     * matches if any of its strong tags does, and weak tags never match.
      * 
      * @param id
      * @param message
+     * @param ifMatch entity tag the message must still have, if any
+     * @param accountId account resolved from the session token, if any
      * @return ResponseEntity with the appropriate status and the number of
      * lines modified, 1, in the body if successful
      */
     @PatchMapping("/messages/{id}")
     ResponseEntity<?> patchMessageWithId(
-        @PathVariable int id, @RequestBody Message message) {
-        Message returnedMessage = messageService.editMessageWithId(
-            id, message.getMessageText());
-        if (returnedMessage == null) {
+        @PathVariable int id, @RequestBody Message message,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false)
+        String ifMatch,
+        @RequestAttribute(name = TokenAuthenticationFilter.ACCOUNT_ID_ATTRIBUTE,
+            required = false) Integer accountId) {
+        boolean precondition = ifMatch != null;
+        int updated;
+        try {
+            Integer expectedVersion = precondition
+                ? messageService.getVersionForIfMatch(id, ifMatch)
+                : message.getVersion();
+            updated = accountId == null
+                ? messageService.editMessageWithId(
+                    id, message.getMessageText(), expectedVersion)
+                : messageService.editMessageWithId(
+                    id, accountId, message.getMessageText(), expectedVersion);
+        } catch (VersionConflictException e) {
+            return precondition
+                ? ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body("Precondition failed")
+                : ResponseEntity.status(HttpStatus.CONFLICT).body("Conflict");
+        }
+        if (updated == 0 && precondition
+            && messageService.getMessageById(id) == null) {
+            // no tag matches a message that does not exist
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .body("Precondition failed");
+        }
+        if (updated == 0) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body("Client error");
         } else {
-            return ResponseEntity.status(HttpStatus.OK).body(1);
+            return ResponseEntity.status(HttpStatus.OK).body(updated);
         }
     }
 
     /**
      * Handler to retrieve all messages posted by a given user.
-     * Response body contains the list of all messages posted by the user with
-     * status code 200.
+     * Without query parameters the response body contains the list of all
+     * messages posted by the user with status code 200. If a cursor or limit
+     * is given, the body instead contains one bounded page of the user's
+     * messages, newest first, along with the cursor for the next page, or
+     * status code 400 if the cursor is invalid. If since or until is given,
+     * the page holds the user's messages posted in that time range, oldest
+     * first, as for getAllMessages. Every successful response carries an
+     * ETag that changes whenever the user posts, edits or deletes a message,
+     * and differs between time ranges and pages; a request whose
+     * If-None-Match holds the current tag gets status code 304 without the
+     * database being read. An invalid cursor or time range gets status code
+     * 400 whatever If-None-Match holds.
      * 
      * @param accountId
-     * @return List of all messages posted by the given account
+     * @param since earliest posting time in epoch seconds, inclusive
+     * @param until latest posting time in epoch seconds, exclusive
+     * @param cursor token from a previous page, omitted for the first page
+     * @param limit maximum number of messages in the page
+     * @param request
+     * @return ResponseEntity with the list of messages or the requested page
      */
     @GetMapping("/accounts/{accountId}/messages")
-    List<Message> getAllMessagesByUser(@PathVariable int accountId) {
-        return messageService.getAllMessagesByUser(accountId);
+    ResponseEntity<?> getAllMessagesByUser(@PathVariable int accountId,
+        @RequestParam(required = false) Long since,
+        @RequestParam(required = false) Long until,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit,
+        WebRequest request) {
+        String etag;
+        try {
+            etag = messageService.getMessagesByUserETag(
+                accountId, since, until, cursor, limit);
+        } catch (InvalidCursorException e) {
+            etag = null;
+        }
+        if (etag == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        }
+        // also sets the ETag header on the full response
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        if (since != null || until != null) {
+            return this.timeRangePage(accountId, since, until, cursor, limit);
+        }
+        if (cursor == null && limit == null) {
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(messageService.getAllMessagesByUser(accountId));
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.OK).body(
+                messageService.getMessagePageByUser(accountId, cursor, limit));
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        }
+    }
+
+    /**
+     * Handler to export all messages posted by a given user as
+     * newline-delimited JSON. Selected when the client accepts
+     * application/x-ndjson.
+     * 
+     * @param accountId
+     * @return ResponseEntity with status 200 streaming one message per line
+     */
+    @GetMapping(value = "/accounts/{accountId}/messages",
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> exportAllMessagesByUser(
+        @PathVariable int accountId) {
+        return ResponseEntity.status(HttpStatus.OK)
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> messageService.exportMessages(accountId, out));
+    }
+
+    /**
+     * Handler to retrieve summary figures for an account, such as the number
+     * of messages it has posted. Response body contains the stats with status
+     * code 200 if the account exists, otherwise an empty body.
+     * 
+     * @param accountId
+     * @return ResponseEntity with status 200 and the stats in body if found,
+     * otherwise empty body
+     */
+    @GetMapping("/accounts/{accountId}/stats")
+    ResponseEntity<?> getAccountStats(@PathVariable int accountId) {
+        AccountStats stats = accountService.getAccountStats(accountId);
+        return ResponseEntity.status(HttpStatus.OK)
+            .body(stats == null ? "" : stats);
+    }
+
+    /**
+     * Handler for following an account.
+     * Response body contains the number of follows recorded, 1, with status
+     * code 200 if successful, otherwise gives status code 400 (if either
+     * account does not exist or they are the same). Following twice is not
+     * an error. With a session token only the token's account can follow,
+     * and status code 403 is given for any other account.
+     * 
+     * @param accountId follower
+     * @param followeeId account to follow
+     * @param tokenAccountId account resolved from the session token, if any
+     * @return ResponseEntity with the appropriate status and 1 in the body if
+     * successful
+     */
+    @PutMapping("/accounts/{accountId}/following/{followeeId}")
+    ResponseEntity<?> followAccount(@PathVariable int accountId,
+        @PathVariable int followeeId,
+        @RequestAttribute(name = TokenAuthenticationFilter.ACCOUNT_ID_ATTRIBUTE,
+            required = false) Integer tokenAccountId) {
+        if (tokenAccountId != null && tokenAccountId != accountId) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body("Forbidden");
+        }
+        if (!accountService.follow(accountId, followeeId)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(1);
+    }
+
+    /**
+     * Handler for unfollowing an account.
+     * Response body contains the number of follows removed, 1, with status
+     * code 200 if the follow existed, otherwise an empty body. With a session
+     * token only the token's account can unfollow, and status code 403 is
+     * given for any other account.
+     * 
+     * @param accountId follower
+     * @param followeeId account to unfollow
+     * @param tokenAccountId account resolved from the session token, if any
+     * @return ResponseEntity with status 200 and the number of follows
+     * removed in the body if successful, otherwise empty body
+     */
+    @DeleteMapping("/accounts/{accountId}/following/{followeeId}")
+    ResponseEntity<?> unfollowAccount(@PathVariable int accountId,
+        @PathVariable int followeeId,
+        @RequestAttribute(name = TokenAuthenticationFilter.ACCOUNT_ID_ATTRIBUTE,
+            required = false) Integer tokenAccountId) {
+        if (tokenAccountId != null && tokenAccountId != accountId) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body("Forbidden");
+        }
+        int removed = accountService.unfollow(accountId, followeeId);
+        return ResponseEntity.status(HttpStatus.OK)
+            .body(removed == 0 ? "" : removed);
+    }
+
+    /**
+     * Handler to retrieve an account's home timeline: the messages posted by
+     * the accounts it follows, newest first. Response body contains one
+     * bounded page of messages along with the cursor for the next page, with
+     * status code 200, or an empty body if the account does not exist. Gives
+     * status code 400 if the cursor is invalid.
+     * 
+     * @param accountId
+     * @param cursor token from a previous page, omitted for the first page
+     * @param limit maximum number of messages in the page
+     * @return ResponseEntity with the appropriate status and the page in body
+     * if found
+     */
+    @GetMapping("/accounts/{accountId}/timeline")
+    ResponseEntity<?> getHomeTimeline(@PathVariable int accountId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limit) {
+        try {
+            MessagePage page = messageService.getHomeTimelinePage(
+                accountId, cursor, limit);
+            return ResponseEntity.status(HttpStatus.OK)
+                .body(page == null ? "" : page);
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        }
+    }
+
+    /**
+     * Shared handling for time-range pages, over all messages or one
+     * account's
+     */
+    private ResponseEntity<?> timeRangePage(Integer postedBy, Long since,
+        Long until, String cursor, Integer limit) {
+        try {
+            MessagePage page = messageService.getMessagePageInTimeRange(
+                postedBy, since, until, cursor, limit);
+            if (page == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Client error");
+            }
+            return ResponseEntity.status(HttpStatus.OK).body(page);
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body("Client error");
+        }
     }
 }
@@ -0,0 +1,33 @@
+package com.example.dto;
+
+/**
+ * Summary figures for one account.
+ */
+public class AccountStats {
+    private int accountId;
+    private int messageCount;
+
+    public AccountStats() {
+    }
+
+    public AccountStats(int accountId, int messageCount) {
+        this.accountId = accountId;
+        this.messageCount = messageCount;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(int messageCount) {
+        this.messageCount = messageCount;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.dto;
+
+import com.example.entity.Message;
+
+/**
+ * Outcome of one message in a batch create request. Holds the stored message
+ * and status 200 if it was created, otherwise status 400 and no message.
+ */
+public class MessageBatchResult {
+    private int status;
+    private Message message;
+
+    public MessageBatchResult() {
+    }
+
+    public MessageBatchResult(int status, Message message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public static MessageBatchResult created(Message message) {
+        return new MessageBatchResult(200, message);
+    }
+
+    public static MessageBatchResult rejected() {
+        return new MessageBatchResult(400, null);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.example.entity.Message;
+
+/**
+ * One page of messages from a keyset-paginated endpoint, together with the
+ * cursor to request the following page. The cursor is null on the last page.
+ */
+public class MessagePage {
+    private List<Message> messages;
+    private String nextCursor;
+
+    public MessagePage() {
+    }
+
+    public MessagePage(List<Message> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Build a page from a query result that was fetched with one row more
+     * than the page size. The extra row, if present, only signals that a next
+     * page exists and is dropped from the result.
+     * 
+     * @param rows up to pageSize + 1 rows in page order
+     * @param pageSize
+     * @param cursorOf produces the cursor pointing just past a given row
+     * @return the page
+     */
+    public static MessagePage of(List<Message> rows, int pageSize,
+        Function<Message, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new MessagePage(rows, null);
+        }
+        List<Message> page = rows.subList(0, pageSize);
+        return new MessagePage(page, cursorOf.apply(page.get(pageSize - 1)));
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
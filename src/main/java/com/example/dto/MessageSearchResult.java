@@ -0,0 +1,50 @@
+package com.example.dto;
+
+import java.util.List;
+
+import com.example.entity.Message;
+
+/**
+ * One page of search results, best match first, together with the total
+ * number of matching messages and the offset to request the following page.
+ * The offset is null on the last page.
+ */
+public class MessageSearchResult {
+    private List<Message> messages;
+    private int totalHits;
+    private Integer nextOffset;
+
+    public MessageSearchResult() {
+    }
+
+    public MessageSearchResult(List<Message> messages, int totalHits,
+        Integer nextOffset) {
+        this.messages = messages;
+        this.totalHits = totalHits;
+        this.nextOffset = nextOffset;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    public void setTotalHits(int totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(Integer nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.example.exception.InvalidCursorException;
+
+/**
+ * Encodes and decodes the opaque cursor tokens handed out by keyset-paginated
+ * endpoints. A cursor holds the sort key values of the last row on a page;
+ * clients should treat it as an opaque string and pass it back unchanged.
+ */
+public final class PageCursor {
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = ":";
+
+    private PageCursor() {
+    }
+
+    /**
+     * Encode the given sort key values into a cursor token
+     * 
+     * @param keys
+     * @return URL-safe cursor token
+     */
+    public static String encode(long... keys) {
+        StringBuilder sb = new StringBuilder(VERSION);
+        for (long key : keys) {
+            sb.append(SEPARATOR).append(key);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(sb.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decode a cursor token into its sort key values
+     * 
+     * @param token
+     * @param arity number of keys the caller expects the cursor to hold
+     * @return the decoded sort key values
+     * @throws InvalidCursorException if the token is malformed or does not
+     * hold exactly the expected number of keys
+     */
+    public static long[] decode(String token, int arity)
+        throws InvalidCursorException {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token),
+                StandardCharsets.US_ASCII).split(SEPARATOR);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        if (parts.length != arity + 1 || !VERSION.equals(parts[0])) {
+            throw new InvalidCursorException("Unsupported cursor");
+        }
+        long[] keys = new long[arity];
+        try {
+            for (int i = 0; i < arity; i++) {
+                keys[i] = Long.parseLong(parts[i + 1]);
+            }
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        return keys;
+    }
+}
@@ -2,6 +2,9 @@ package com.example.entity;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 /**
  * This is a class that models an Account.
  *
@@ -15,7 +18,10 @@ public class Account {
      */
     @Column(name="accountId")
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+    @GenericGenerator(name = "account_seq",
+        strategy = "com.example.entity.PooledSequenceGenerator",
+        parameters = @Parameter(name = "sequence_name", value = "account_seq"))
     private Integer accountId;
     /**
      * A username for this Account (must be unique and not blank)
@@ -0,0 +1,96 @@
+package com.example.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import javax.persistence.*;
+
+/**
+ * This is a class that models one account following another. The pair of
+ * account IDs is the Entity's ID; a follow has no other state.
+ */
+@Entity
+@Table(name="follow")
+@IdClass(Follow.Key.class)
+public class Follow {
+    /**
+     * The account doing the following
+     */
+    @Id
+    @Column(name="followerId")
+    private Integer followerId;
+    /**
+     * The account being followed
+     */
+    @Id
+    @Column(name="followeeId")
+    private Integer followeeId;
+
+    public Follow() {
+
+    }
+
+    public Follow(Integer followerId, Integer followeeId) {
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+    }
+
+    public Integer getFollowerId() {
+        return followerId;
+    }
+
+    public void setFollowerId(Integer followerId) {
+        this.followerId = followerId;
+    }
+
+    public Integer getFolloweeId() {
+        return followeeId;
+    }
+
+    public void setFolloweeId(Integer followeeId) {
+        this.followeeId = followeeId;
+    }
+
+    @Override
+    public String toString() {
+        return "Follow{" +
+                "followerId=" + followerId +
+                ", followeeId=" + followeeId +
+                '}';
+    }
+
+    /**
+     * Composite ID of a Follow, as required by @IdClass
+     */
+    public static class Key implements Serializable {
+        private Integer followerId;
+        private Integer followeeId;
+
+        public Key() {
+
+        }
+
+        public Key(Integer followerId, Integer followeeId) {
+            this.followerId = followerId;
+            this.followeeId = followeeId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return Objects.equals(followerId, other.followerId)
+                && Objects.equals(followeeId, other.followeeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(followerId, followeeId);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.example.entity;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 /**
  * This is a class that models a Message.
  *
@@ -11,10 +14,14 @@ import javax.persistence.*;
 @Table(name="message")
 public class Message {
      /**
-     * An id for this message which will be automatically generated by the database.
+     * An id for this message which will be automatically generated from a database sequence.
      */
      @Column (name="messageId")
-     @Id @GeneratedValue
+     @Id
+     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+     @GenericGenerator(name = "message_seq",
+         strategy = "com.example.entity.PooledSequenceGenerator",
+         parameters = @Parameter(name = "sequence_name", value = "message_seq"))
     private Integer messageId;
     /**
      * The id for the user who has posted this message. We will assume that this is provided by the front-end of this
@@ -33,6 +40,13 @@ public class Message {
      */
     @Column (name="timePostedEpoch")
     private Long timePostedEpoch;
+    /**
+     * Optimistic-locking version of this message, 0 when it is created and incremented by every edit. It is not
+     * compared by equals().
+     */
+    @Version
+    @Column (name="version")
+    private Integer version;
     /**
      * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
      * Jackson Objectmapper to work.
@@ -121,6 +135,20 @@ public class Message {
     public void setTimePostedEpoch(Long timePostedEpoch) {
         this.timePostedEpoch = timePostedEpoch;
     }
+    /**
+     * Properly named getters and setters are necessary for Jackson ObjectMapper to work. You may use them as well.
+     * @return version
+     */
+    public Integer getVersion() {
+        return version;
+    }
+    /**
+     * Properly named getters and setters are necessary for Jackson ObjectMapper to work. You may use them as well.
+     * @param version
+     */
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
     /**
      * Overriding the default equals() method adds functionality to tell when two objects are identical, allowing
      * Assert.assertEquals and List.contains to function.
@@ -170,6 +198,7 @@ public class Message {
                 ", postedBy=" + postedBy +
                 ", messageText='" + messageText + '\'' +
                 ", timePostedEpoch=" + timePostedEpoch +
+                ", version=" + version +
                 '}';
     }
 
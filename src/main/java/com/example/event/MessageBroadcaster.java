@@ -0,0 +1,278 @@
+package com.example.event;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pushes every MessageEvent to the clients subscribed to GET
+ * /messages/stream.
+ *
+ * Publishing never waits for a client: each event is appended to every
+ * subscriber's own buffer, and a subscriber with something buffered has a
+ * task on a small shared pool of sender threads write it out. An idle
+ * subscriber is just an entry in a set, holding no thread. A subscriber
+ * whose buffer already holds app.stream.buffer-size unsent events is too
+ * slow to keep up, and is evicted by closing its stream; it can reconnect
+ * and reload what it missed.
+ *
+ * A write to a client that stops reading blocks its sender thread until
+ * the server's socket write timeout gives up. A watchdog therefore evicts
+ * any subscriber whose current send has taken longer than
+ * app.stream.send-timeout, and writes its thread off: the pool grows by
+ * one until the stuck send returns, so the other subscribers always have
+ * app.stream.sender-threads threads delivering to them.
+ */
+@Component
+public class MessageBroadcaster {
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senders;
+    private final ScheduledExecutorService watchdog;
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Where a subscriber's events go, typically an open HTTP response
+     */
+    public interface Sink {
+        /**
+         * Write one event; may block while the client is slow
+         *
+         * @throws IOException if the client has gone away
+         */
+        void send(MessageEvent event) throws IOException;
+
+        /**
+         * End the stream. Called once, when the subscription is cancelled
+         * for any reason, and never while a send is in progress.
+         */
+        void close();
+    }
+
+    @Autowired
+    public MessageBroadcaster(
+        @Value("${app.stream.buffer-size:256}") int bufferSize,
+        @Value("${app.stream.sender-threads:4}") int senderThreads,
+        @Value("${app.stream.send-timeout:10s}") Duration sendTimeout) {
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "message-stream-sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.senders.allowCoreThreadTimeOut(true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "message-stream-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(sendTimeout.toMillis() / 2, 100);
+        this.watchdog.scheduleWithFixedDelay(this::evictStalled, period,
+            period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdownNow();
+        for (Subscription subscription : subscribers) {
+            subscription.cancel();
+        }
+        senders.shutdown();
+    }
+
+    /**
+     * Start delivering events to the given sink
+     *
+     * @param sink
+     * @return the subscription, to be cancelled when the client disconnects
+     */
+    public Subscription subscribe(Sink sink) {
+        Subscription subscription = new Subscription(sink);
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        for (Subscription subscription : subscribers) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Evict subscribers whose current send has run past the send timeout
+     */
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscribers) {
+            subscription.evictIfStalled(now);
+        }
+    }
+
+    /**
+     * Grow or shrink the sender pool, to stand in for a thread stuck in a
+     * stalled send and to give it back once the send returns
+     */
+    private synchronized void resizeSenders(int delta) {
+        if (delta > 0) {
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } else {
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+        }
+    }
+
+    /**
+     * @return number of open subscriptions
+     */
+    public int size() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return number of subscribers evicted for falling behind or stalling
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public final class Subscription {
+        private final Sink sink;
+        private final Queue<MessageEvent> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        /**
+         * When the send in progress started, or 0 if none is
+         */
+        private volatile long sendStartedAt;
+
+        private Subscription(Sink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Stop delivering events and close the sink. Safe to call more than
+         * once and from any thread.
+         */
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                buffer.clear();
+                // a send task in progress closes the sink once its send
+                // returns; otherwise close on a sender thread, since the
+                // sink may block and this may be the publisher's thread
+                if (sending.compareAndSet(false, true)) {
+                    try {
+                        senders.execute(this::finish);
+                    } catch (RejectedExecutionException e) {
+                        this.finish();
+                    }
+                }
+            }
+        }
+
+        private void offer(MessageEvent event) {
+            if (cancelled.get()) {
+                return;
+            }
+            if (buffered.incrementAndGet() > bufferSize) {
+                evictions.increment();
+                this.cancel();
+                return;
+            }
+            buffer.add(event);
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    sending.set(false);
+                    this.cancel();
+                }
+            }
+        }
+
+        private void evictIfStalled(long now) {
+            long startedAt = sendStartedAt;
+            if (startedAt != 0 && now - startedAt > sendTimeoutNanos
+                && stalled.compareAndSet(false, true)) {
+                evictions.increment();
+                resizeSenders(1);
+                this.cancel();
+            }
+        }
+
+        /**
+         * Write out everything buffered. Only one send task per subscriber
+         * runs at a time, so events arrive in the order they were offered.
+         * Once cancelled, the task closes the sink instead of releasing the
+         * sending flag, so the sink is closed exactly once and never during
+         * a send.
+         */
+        private void send() {
+            do {
+                MessageEvent event;
+                while (!cancelled.get() && (event = buffer.poll()) != null) {
+                    buffered.decrementAndGet();
+                    sendStartedAt = Math.max(System.nanoTime(), 1);
+                    try {
+                        sink.send(event);
+                    } catch (IOException | RuntimeException e) {
+                        this.cancel();
+                    } finally {
+                        sendStartedAt = 0;
+                    }
+                }
+                if (cancelled.get()) {
+                    this.finish();
+                    return;
+                }
+                sending.set(false);
+                // cancel() found the flag set, so it is up to this task
+                if (cancelled.get() && sending.compareAndSet(false, true)) {
+                    this.finish();
+                    return;
+                }
+                // an event offered after the last poll but before the flag
+                // was cleared found it set, so pick it up here
+            } while (!buffer.isEmpty() && sending.compareAndSet(false, true));
+        }
+
+        private void finish() {
+            if (stalled.get()) {
+                // the stuck send has returned, so its stand-in can go
+                resizeSenders(-1);
+            }
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                // the client has already gone
+            }
+        }
+    }
+}
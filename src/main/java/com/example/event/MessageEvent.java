@@ -0,0 +1,67 @@
+package com.example.event;
+
+import com.example.entity.Message;
+
+/**
+ * Published by MessageService after a message is created, edited or
+ * deleted, so in-memory views can be kept up to date without polling the
+ * database.
+ *
+ * When published inside a transaction, listeners that must not see
+ * uncommitted changes should use @TransactionalEventListener with
+ * fallbackExecution enabled, which delivers after commit or immediately
+ * when there is no transaction.
+ */
+public class MessageEvent {
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final int messageId;
+    private final Message message;
+
+    private MessageEvent(Type type, int messageId, Message message) {
+        this.type = type;
+        this.messageId = messageId;
+        this.message = message;
+    }
+
+    /**
+     * @param message the saved message
+     */
+    public static MessageEvent created(Message message) {
+        return new MessageEvent(Type.CREATED, message.getMessageId(), message);
+    }
+
+    /**
+     * @param message the edited message, as it now is
+     */
+    public static MessageEvent updated(Message message) {
+        return new MessageEvent(Type.UPDATED, message.getMessageId(), message);
+    }
+
+    /**
+     * @param messageId
+     * @param postedBy author of the deleted message, if known
+     */
+    public static MessageEvent deleted(int messageId, Integer postedBy) {
+        return new MessageEvent(Type.DELETED, messageId,
+            new Message(messageId, postedBy, null, null));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * @return the message; for DELETED events only its ID and author are set
+     */
+    public Message getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.exception;
+
+public class HashingUnavailableException extends Exception {
+    public HashingUnavailableException() {
+        super();
+    }
+
+    public HashingUnavailableException(String m) {
+        super(m);
+    }
+
+    public HashingUnavailableException(String m, Throwable cause) {
+        super(m, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.exception;
+
+public class IngestQueueFullException extends Exception {
+    public IngestQueueFullException() {
+        super();
+    }
+
+    public IngestQueueFullException(String m) {
+        super(m);
+    }
+
+    public IngestQueueFullException(String m, Throwable cause) {
+        super(m, cause);
+    }
+}
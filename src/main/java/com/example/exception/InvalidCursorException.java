@@ -0,0 +1,11 @@
+package com.example.exception;
+
+public class InvalidCursorException extends Exception {
+    public InvalidCursorException() {
+        super();
+    }
+
+    public InvalidCursorException(String m) {
+        super(m);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown while writing the response to a safe request, such as a GET, when
+ * it ran more SQL statements than app.sql-stats.budget allows and
+ * app.sql-stats.fail-on-budget is set.
+ * Unchecked so it can escape response body advice and become a 500.
+ */
+@ResponseStatus(code = HttpStatus.INTERNAL_SERVER_ERROR,
+    reason = "SQL statement budget exceeded")
+public class SqlBudgetExceededException extends RuntimeException {
+    public SqlBudgetExceededException() {
+        super();
+    }
+
+    public SqlBudgetExceededException(String m) {
+        super(m);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.exception;
+
+public class VersionConflictException extends Exception {
+    public VersionConflictException() {
+        super();
+    }
+
+    public VersionConflictException(String m) {
+        super(m);
+    }
+
+    public VersionConflictException(String m, Throwable cause) {
+        super(m, cause);
+    }
+}
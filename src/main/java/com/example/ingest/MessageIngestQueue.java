@@ -0,0 +1,375 @@
+package com.example.ingest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.cache.MessageCache;
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.exception.IngestQueueFullException;
+
+/**
+ * Write-behind ingestion of posted messages, enabled with
+ * app.ingest.mode=write-behind.
+ *
+ * Instead of committing a transaction per message, MessageService hands a
+ * validated message to submit, which assigns its ID and queues it. A single
+ * writer thread inserts whatever has accumulated with one JDBC batch and one
+ * commit, once app.ingest.batch-size messages are waiting or
+ * app.ingest.max-delay has passed since it picked up the first of them, so
+ * under bursts many messages share the cost of a commit.
+ *
+ * app.ingest.durability decides when submit returns. With sync it waits
+ * until the batch holding the message has committed, so nothing
+ * acknowledged can be lost and insert failures reach the caller. With
+ * async it returns as soon as the message is queued; queued messages are
+ * lost if the process dies, and a failed insert can only be logged.
+ * Either way, once app.ingest.capacity messages are waiting submit fails
+ * fast rather than queueing without bound, and a sync submit gives up
+ * after app.ingest.sync-timeout; a message it gave up on may still be
+ * written.
+ *
+ * The writer thread survives any failure: a batch that cannot be written
+ * fails only its own messages, and an exception from a MessageEvent
+ * listener is logged after the messages have been acknowledged.
+ *
+ * IDs are taken from message_seq in blocks, the same way Hibernate's
+ * pooled-lo optimizer does, so they never collide with IDs Hibernate
+ * assigns. A message is cached when queued, so it can be read back by ID
+ * at once, but its MessageEvent is only published after it is written;
+ * lists, search, counters and timelines only ever see committed messages.
+ * Deleting or editing a message that is still queued finds nothing.
+ */
+@Component
+public class MessageIngestQueue {
+    private static final Logger log =
+        LoggerFactory.getLogger(MessageIngestQueue.class);
+    private static final String INSERT_SQL = "insert into message"
+        + " (messageId, postedBy, messageText, timePostedEpoch)"
+        + " values (?, ?, ?, ?)";
+    private static final long POLL_MILLIS = 100;
+
+    public enum Durability { SYNC, ASYNC }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageCache messageCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Durability durability;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Duration syncTimeout;
+    private final int allocationSize;
+    private final BlockingQueue<Pending> queue;
+    private final ExecutorService writer;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean accepting = true;
+    private int nextId;
+    private int idLimit;
+
+    @Autowired
+    public MessageIngestQueue(JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        MessageCache messageCache, ApplicationEventPublisher eventPublisher,
+        @Value("${app.ingest.mode:direct}") String mode,
+        @Value("${app.ingest.durability:sync}") Durability durability,
+        @Value("${app.ingest.capacity:10000}") int capacity,
+        @Value("${app.ingest.batch-size:500}") int batchSize,
+        @Value("${app.ingest.max-delay:2ms}") Duration maxDelay,
+        @Value("${app.ingest.sync-timeout:5s}") Duration syncTimeout,
+        @Value("${spring.jpa.properties.app.id.allocation-size:50}")
+        int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messageCache = messageCache;
+        this.eventPublisher = eventPublisher;
+        this.enabled = "write-behind".equals(mode);
+        this.durability = durability;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.syncTimeout = syncTimeout;
+        this.allocationSize = allocationSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "message-ingest-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            writer.execute(this::run);
+        }
+    }
+
+    /**
+     * Stop accepting messages and give the writer time to write out the
+     * ones already queued before the data source closes
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        accepting = false;
+        writer.shutdown();
+        if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("{} queued messages were not written before shutdown",
+                queue.size());
+            writer.shutdownNow();
+        }
+        // anything queued after the writer stopped is failed, not left to
+        // block its caller
+        List<Pending> stranded = new ArrayList<>();
+        queue.drainTo(stranded);
+        for (Pending pending : stranded) {
+            messageCache.invalidate(pending.message.getMessageId());
+            pending.done.completeExceptionally(new CancellationException());
+        }
+    }
+
+    /**
+     * @return true if messages should be submitted here rather than saved
+     * directly
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Assign a validated message its ID and queue it to be written
+     *
+     * @param message
+     * @return the given message with its assigned ID; with sync durability
+     * it has been committed
+     * @throws IngestQueueFullException if the queue is full or shutting
+     * down, or a sync write did not complete within app.ingest.sync-timeout
+     */
+    public Message submit(Message message) throws IngestQueueFullException {
+        message.setMessageId(this.nextId());
+        // the column default, as Hibernate would set it on persist
+        message.setVersion(0);
+        Pending pending = new Pending(message);
+        // cache first so a failed write cannot be followed by a stale put
+        messageCache.put(message);
+        if (!accepting || !queue.offer(pending)) {
+            messageCache.invalidate(message.getMessageId());
+            rejected.increment();
+            throw new IngestQueueFullException();
+        }
+        if (durability == Durability.SYNC) {
+            try {
+                pending.done.get(syncTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new IngestQueueFullException(
+                    "Timed out waiting for the write", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IngestQueueFullException("Interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return message;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Take the next ID from the current block, reserving a new block from
+     * the sequence when it runs out
+     */
+    private synchronized int nextId() {
+        if (nextId == idLimit) {
+            nextId = jdbcTemplate.queryForObject(
+                "select next value for message_seq", Integer.class);
+            idLimit = nextId + allocationSize;
+        }
+        return nextId++;
+    }
+
+    /**
+     * Writer loop: wait for a message, gather more until the batch is full
+     * or the delay is up, write them, and repeat until shut down with
+     * nothing left queued
+     */
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (!accepting) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // forced shutdown; whatever was gathered is still written
+                Thread.currentThread().interrupt();
+            }
+            try {
+                this.flush(batch);
+            } catch (RuntimeException e) {
+                // flush fails messages itself, so this is a bug; still fail
+                // whatever is left rather than leave its callers waiting
+                for (Pending pending : batch) {
+                    if (!pending.done.isDone()) {
+                        this.fail(pending, e);
+                    }
+                }
+            }
+            batch.clear();
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write a batch in one transaction. If that fails, for instance because
+     * one row violates a constraint, write the messages one at a time so
+     * only the bad ones are lost. Written messages are then acknowledged
+     * and announced.
+     */
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Pending> committed = batch;
+        try {
+            this.insert(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                this.fail(batch.get(0), e);
+                return;
+            }
+            committed = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                try {
+                    this.insert(Collections.singletonList(pending));
+                    committed.add(pending);
+                } catch (RuntimeException rowFailure) {
+                    this.fail(pending, rowFailure);
+                }
+            }
+        }
+        this.publish(committed);
+    }
+
+    private void insert(List<Pending> batch) {
+        transactionTemplate.executeWithoutResult(status ->
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(),
+                (ps, pending) -> {
+                    Message message = pending.message;
+                    ps.setInt(1, message.getMessageId());
+                    ps.setObject(2, message.getPostedBy());
+                    ps.setString(3, message.getMessageText());
+                    ps.setObject(4, message.getTimePostedEpoch());
+                }));
+        flushes.increment();
+    }
+
+    /**
+     * Acknowledge committed messages, then publish their events. A listener
+     * failure is logged and does not affect the other messages, which are
+     * already written.
+     */
+    private void publish(List<Pending> committed) {
+        for (Pending pending : committed) {
+            written.increment();
+            pending.done.complete(null);
+        }
+        for (Pending pending : committed) {
+            try {
+                eventPublisher.publishEvent(
+                    MessageEvent.created(pending.message));
+            } catch (RuntimeException e) {
+                log.error("Event listener failed for message {}",
+                    pending.message.getMessageId(), e);
+            }
+        }
+    }
+
+    private void fail(Pending pending, RuntimeException e) {
+        failed.increment();
+        messageCache.invalidate(pending.message.getMessageId());
+        if (durability == Durability.ASYNC) {
+            log.error("Dropped queued message {}",
+                pending.message.getMessageId(), e);
+        }
+        pending.done.completeExceptionally(e);
+    }
+
+    private static final class Pending {
+        final Message message;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(Message message) {
+            this.message = message;
+        }
+    }
+}
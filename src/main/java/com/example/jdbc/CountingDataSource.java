@@ -0,0 +1,153 @@
+package com.example.jdbc;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps a DataSource in JDK proxies that report every statement execution
+ * and fetched row to the current thread's SqlStatistics scope.
+ *
+ * An executeBatch call counts as one statement, since it is one round trip.
+ * When no scope is open the proxies only forward calls. unwrap() and
+ * isWrapperFor() are forwarded too, so pool metrics can still reach the
+ * underlying HikariDataSource, and close() is exposed when the target has
+ * one so the pool is still shut down with the context.
+ */
+public final class CountingDataSource {
+
+    private CountingDataSource() {
+    }
+
+    /**
+     * @param target
+     * @return a DataSource that counts statements run through target
+     */
+    public static DataSource wrap(DataSource target) {
+        Class<?>[] interfaces = target instanceof Closeable
+            ? new Class<?>[] {DataSource.class, Closeable.class}
+            : new Class<?>[] {DataSource.class};
+        return (DataSource) Proxy.newProxyInstance(
+            CountingDataSource.class.getClassLoader(), interfaces,
+            (proxy, method, args) -> {
+                Object result = invoke(proxy, target, method, args);
+                return result instanceof Connection
+                    ? proxy(Connection.class, new ConnectionHandler(
+                        (Connection) result))
+                    : result;
+            });
+    }
+
+    /**
+     * Forward a call to the target. equals and hashCode keep proxy identity,
+     * since JDBC resources are tracked in hash-based registries.
+     */
+    private static Object invoke(Object proxy, Object target, Method method,
+        Object[] args) throws Throwable {
+        if ("equals".equals(method.getName()) && args != null
+            && args.length == 1 && method.getDeclaringClass() == Object.class) {
+            return proxy == args[0];
+        } else if ("hashCode".equals(method.getName()) && args == null) {
+            return System.identityHashCode(proxy);
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+            CountingDataSource.class.getClassLoader(), new Class<?>[] {type},
+            handler));
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+            throws Throwable {
+            Object result = CountingDataSource.invoke(
+                proxy, target, method, args);
+            String sql = args != null && args.length > 0
+                && args[0] instanceof String ? (String) args[0] : null;
+            if (result instanceof CallableStatement) {
+                return proxy(CallableStatement.class,
+                    new StatementHandler((Statement) result, sql));
+            } else if (result instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class,
+                    new StatementHandler((Statement) result, sql));
+            } else if (result instanceof Statement) {
+                return proxy(Statement.class,
+                    new StatementHandler((Statement) result, null));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+            throws Throwable {
+            SqlStatistics statistics = SqlStatistics.current();
+            if (statistics == null) {
+                return CountingDataSource.invoke(proxy, target, method, args);
+            }
+            if (!method.getName().startsWith("execute")) {
+                Object result = CountingDataSource.invoke(
+                    proxy, target, method, args);
+                return "getResultSet".equals(method.getName())
+                    ? countRows(result, statistics) : result;
+            }
+            String sql = args != null && args.length > 0
+                && args[0] instanceof String ? (String) args[0] : preparedSql;
+            long start = System.nanoTime();
+            try {
+                return countRows(CountingDataSource.invoke(
+                    proxy, target, method, args), statistics);
+            } finally {
+                statistics.recordStatement(sql, System.nanoTime() - start);
+            }
+        }
+
+        private static Object countRows(Object result,
+            SqlStatistics statistics) {
+            if (!(result instanceof ResultSet)) {
+                return result;
+            }
+            ResultSet resultSet = (ResultSet) result;
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                Object value = CountingDataSource.invoke(
+                    proxy, resultSet, method, args);
+                if ("next".equals(method.getName())
+                    && Boolean.TRUE.equals(value)) {
+                    statistics.recordRow();
+                }
+                return value;
+            });
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the JDBC statements, time spent in them and rows fetched by the
+ * current thread between begin() and end(), typically one HTTP request.
+ *
+ * A scope is only touched by the thread that opened it, so the counters are
+ * plain fields. Statements run outside any scope, such as startup scripts or
+ * work handed to other threads, are not counted.
+ */
+public final class SqlStatistics {
+    private static final ThreadLocal<SqlStatistics> CURRENT =
+        new ThreadLocal<>();
+
+    private int statements;
+    private long nanos;
+    private long rows;
+    private final Map<String, Integer> executions = new HashMap<>();
+    private String mostRepeatedSql;
+    private int maxRepeats;
+
+    private SqlStatistics() {
+    }
+
+    /**
+     * Open a new scope on the current thread, replacing any existing one
+     *
+     * @return the new scope
+     */
+    public static SqlStatistics begin() {
+        SqlStatistics statistics = new SqlStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Close the current thread's scope
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the current thread's scope, or null if none is open
+     */
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    void recordStatement(String sql, long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        if (sql != null) {
+            int repeats = executions.merge(sql, 1, Integer::sum);
+            if (repeats > maxRepeats) {
+                maxRepeats = repeats;
+                mostRepeatedSql = sql;
+            }
+        }
+    }
+
+    void recordRow() {
+        rows++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the most executions of any single SQL string, a hint of an N+1
+     * query pattern when high
+     */
+    public int getMaxRepeats() {
+        return maxRepeats;
+    }
+
+    public String getMostRepeatedSql() {
+        return mostRepeatedSql;
+    }
+}
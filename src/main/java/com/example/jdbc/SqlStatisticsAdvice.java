@@ -0,0 +1,94 @@
+package com.example.jdbc;
+
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.example.exception.SqlBudgetExceededException;
+
+/**
+ * Reports the request's SQL statistics just before its body is written,
+ * when all of its statements have run but the headers can still change.
+ *
+ * With app.sql-stats.headers=true the counts are added as X-Sql-Count,
+ * X-Sql-Time-Ms, X-Sql-Rows and X-Sql-Max-Repeats headers. With
+ * app.sql-stats.budget set above zero, a request that ran more statements
+ * is logged, or fails with status 500 if app.sql-stats.fail-on-budget=true,
+ * so tests catch endpoints that regress. Only safe methods fail: by now a
+ * POST, PUT, PATCH or DELETE has committed its changes, so it is answered
+ * as usual with an X-Sql-Budget-Exceeded header holding the statement
+ * count, rather than reporting a failure for a write that happened.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "app.sql-stats.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class SqlStatisticsAdvice implements ResponseBodyAdvice<Object> {
+    private static final Logger log =
+        LoggerFactory.getLogger(SqlStatisticsAdvice.class);
+
+    @Value("${app.sql-stats.headers:false}")
+    private boolean headers;
+    @Value("${app.sql-stats.budget:0}")
+    private int budget;
+    @Value("${app.sql-stats.fail-on-budget:false}")
+    private boolean failOnBudget;
+
+    @Override
+    public boolean supports(MethodParameter returnType,
+        Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType,
+        MediaType selectedContentType,
+        Class<? extends HttpMessageConverter<?>> selectedConverterType,
+        ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics == null) {
+            return body;
+        }
+        if (headers) {
+            response.getHeaders().set("X-Sql-Count",
+                String.valueOf(statistics.getStatements()));
+            response.getHeaders().set("X-Sql-Time-Ms",
+                String.format(Locale.ROOT, "%.3f",
+                    statistics.getNanos() / 1e6));
+            response.getHeaders().set("X-Sql-Rows",
+                String.valueOf(statistics.getRows()));
+            response.getHeaders().set("X-Sql-Max-Repeats",
+                String.valueOf(statistics.getMaxRepeats()));
+        }
+        if (budget > 0 && statistics.getStatements() > budget) {
+            String message = request.getMethodValue() + " "
+                + request.getURI().getPath() + " ran "
+                + statistics.getStatements() + " SQL statements, budget is "
+                + budget;
+            if (failOnBudget && isSafe(request.getMethod())) {
+                throw new SqlBudgetExceededException(message);
+            }
+            if (failOnBudget) {
+                response.getHeaders().set("X-Sql-Budget-Exceeded",
+                    String.valueOf(statistics.getStatements()));
+            }
+            log.warn(message);
+        }
+        return body;
+    }
+
+    private static boolean isSafe(HttpMethod method) {
+        return method == HttpMethod.GET || method == HttpMethod.HEAD
+            || method == HttpMethod.OPTIONS || method == HttpMethod.TRACE;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.jdbc;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Opens a SqlStatistics scope around each request and, once the request is
+ * done, records its statement count, rows fetched and SQL time as the
+ * app.request.sql.* meters, tagged by method and URI pattern.
+ *
+ * When one SQL string runs at least app.sql-stats.repeat-threshold times in
+ * a request a warning is logged, since that usually means an N+1 query
+ * pattern. Work done on other threads, such as the body of a streamed
+ * export, is not counted.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sql-stats.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+    private static final Logger log =
+        LoggerFactory.getLogger(SqlStatisticsFilter.class);
+
+    private final MeterRegistry registry;
+    private final int repeatThreshold;
+
+    @Autowired
+    public SqlStatisticsFilter(MeterRegistry registry,
+        @Value("${app.sql-stats.repeat-threshold:10}") int repeatThreshold) {
+        this.registry = registry;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+        HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        SqlStatistics statistics = SqlStatistics.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatistics.end();
+            this.record(request, statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request,
+        SqlStatistics statistics) {
+        Object pattern = request.getAttribute(
+            HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+        DistributionSummary.builder("app.request.sql.statements")
+            .description("SQL statements run per request")
+            .tags(tags).register(registry)
+            .record(statistics.getStatements());
+        DistributionSummary.builder("app.request.sql.rows")
+            .description("Rows fetched per request")
+            .tags(tags).register(registry)
+            .record(statistics.getRows());
+        Timer.builder("app.request.sql.time")
+            .description("Time spent executing SQL per request")
+            .tags(tags).register(registry)
+            .record(statistics.getNanos(), TimeUnit.NANOSECONDS);
+        if (repeatThreshold > 0
+            && statistics.getMaxRepeats() >= repeatThreshold) {
+            log.warn("Possible N+1 in {} {}: statement ran {} times: {}",
+                request.getMethod(), uri, statistics.getMaxRepeats(),
+                statistics.getMostRepeatedSql());
+        }
+    }
+}
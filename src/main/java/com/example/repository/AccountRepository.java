@@ -1,12 +1,26 @@
 package com.example.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import com.example.entity.Account;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface AccountRepository extends JpaRepository<Account, Integer> {
     public Account findAccountByUsername(String username);
 
-    public Account findAccountByUsernameAndPassword(
-        String username, String password);
+    @Transactional
+    @Modifying
+    @Query("update Account a set a.password = :password"
+        + " where a.accountId = :accountId")
+    public int updatePassword(@Param("accountId") int accountId,
+        @Param("password") String password);
+
+    @Query("select a.accountId from Account a where a.accountId in :ids")
+    public List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
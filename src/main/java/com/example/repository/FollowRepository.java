@@ -0,0 +1,38 @@
+package com.example.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.entity.Follow;
+
+public interface FollowRepository extends JpaRepository<Follow, Follow.Key> {
+    /**
+     * Records that one account follows another in a single MERGE statement,
+     * so following twice is harmless and no read is needed first. Commits on
+     * return unless called inside an existing transaction.
+     *
+     * @return number of rows merged, always 1
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "merge into follow (followerId, followeeId)"
+        + " key (followerId, followeeId) values (:followerId, :followeeId)",
+        nativeQuery = true)
+    int follow(@Param("followerId") int followerId,
+        @Param("followeeId") int followeeId);
+
+    /**
+     * Removes a follow in a single DELETE statement.
+     *
+     * @return number of rows deleted, 0 if the follow did not exist
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from Follow f where f.followerId = :followerId"
+        + " and f.followeeId = :followeeId")
+    int unfollow(@Param("followerId") int followerId,
+        @Param("followeeId") int followeeId);
+}
@@ -1,11 +1,195 @@
 package com.example.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.entity.Message;
 
 public interface MessageRepository extends JpaRepository<Message, Integer> {
     List<Message> findMessagesByPostedBy(int postedBy);
+
+    /**
+     * Keyset page over all messages in ascending ID order. Only the first
+     * page of the given Pageable is meaningful; its size bounds the result.
+     */
+    List<Message> findByMessageIdGreaterThanOrderByMessageIdAsc(
+        int messageId, Pageable pageable);
+
+    /**
+     * First page of an account's timeline, newest first, with messages that
+     * have no posting time last. Served by the (postedBy, timePostedEpoch,
+     * messageId) index, whose H2 ordering also puts NULLs last when
+     * descending.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy"
+        + " order by m.timePostedEpoch desc nulls last, m.messageId desc")
+    List<Message> findByPostedByOrderByTimePostedEpochDescMessageIdDesc(
+        @Param("postedBy") int postedBy, Pageable pageable);
+
+    /**
+     * Subsequent page of an account's timeline, starting just after the
+     * message with the given time and ID. Messages without a posting time
+     * sort after every timed one, so they all follow the cursor.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy"
+        + " and (m.timePostedEpoch < :time"
+        + " or (m.timePostedEpoch = :time and m.messageId < :messageId)"
+        + " or m.timePostedEpoch is null)"
+        + " order by m.timePostedEpoch desc nulls last, m.messageId desc")
+    List<Message> findTimelinePageAfter(@Param("postedBy") int postedBy,
+        @Param("time") long time, @Param("messageId") int messageId,
+        Pageable pageable);
+
+    /**
+     * Subsequent page of an account's timeline once the cursor is among the
+     * messages without a posting time, which come last in descending ID
+     * order.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy"
+        + " and m.timePostedEpoch is null and m.messageId < :messageId"
+        + " order by m.messageId desc")
+    List<Message> findUntimedTimelinePageAfter(
+        @Param("postedBy") int postedBy, @Param("messageId") int messageId,
+        Pageable pageable);
+
+    /**
+     * Page of messages posted before the given time, in ascending time and
+     * ID order, starting just after the message with the given time and ID.
+     * The redundant lower bound on timePostedEpoch lets the message_time_idx
+     * index range scan start at the cursor.
+     */
+    @Query("select m from Message m where m.timePostedEpoch < :until"
+        + " and m.timePostedEpoch >= :time"
+        + " and (m.timePostedEpoch > :time"
+        + " or (m.timePostedEpoch = :time and m.messageId > :messageId))"
+        + " order by m.timePostedEpoch asc, m.messageId asc")
+    List<Message> findTimeRangePageAfter(@Param("until") long until,
+        @Param("time") long time, @Param("messageId") int messageId,
+        Pageable pageable);
+
+    /**
+     * As findTimeRangePageAfter, restricted to one account's messages and
+     * served by the (postedBy, timePostedEpoch, messageId) index.
+     */
+    @Query("select m from Message m where m.postedBy = :postedBy"
+        + " and m.timePostedEpoch < :until"
+        + " and m.timePostedEpoch >= :time"
+        + " and (m.timePostedEpoch > :time"
+        + " or (m.timePostedEpoch = :time and m.messageId > :messageId))"
+        + " order by m.timePostedEpoch asc, m.messageId asc")
+    List<Message> findTimeRangePageByPostedByAfter(
+        @Param("postedBy") int postedBy, @Param("until") long until,
+        @Param("time") long time, @Param("messageId") int messageId,
+        Pageable pageable);
+
+    /**
+     * IDs of the latest messages posted by the accounts the given account
+     * follows, newest first, starting below the given message ID. Used to
+     * fill home timelines and to continue pages past what they hold.
+     */
+    @Query("select m.messageId from Message m where m.messageId < :beforeId"
+        + " and m.postedBy in (select f.followeeId from Follow f"
+        + " where f.followerId = :followerId)"
+        + " order by m.messageId desc")
+    List<Integer> findHomeTimelineIds(@Param("followerId") int followerId,
+        @Param("beforeId") int beforeId, Pageable pageable);
+
+    /**
+     * Replaces the text of a message and increments its version in a single
+     * UPDATE statement, without loading the entity first, and returns the
+     * updated row from H2's FINAL TABLE data change delta table. If version
+     * is not negative the row is only updated if it still has that version,
+     * so concurrent edits are detected without locking. Commits on return
+     * unless called inside an existing transaction.
+     * 
+     * @param version expected current version, or -1 to update any version
+     * @return the updated message, or an empty list if it does not exist or
+     * has a different version
+     */
+    @Transactional
+    @Query(value = "select * from final table (update message"
+        + " set messageText = :messageText, version = version + 1"
+        + " where messageId = :messageId"
+        + " and (:version < 0 or version = :version))",
+        nativeQuery = true)
+    List<Message> updateMessageText(@Param("messageId") int messageId,
+        @Param("messageText") String messageText,
+        @Param("version") int version);
+
+    /**
+     * As updateMessageText, only if the message was posted by the given
+     * account.
+     * 
+     * @param version expected current version, or -1 to update any version
+     * @return the updated message, or an empty list if it does not exist,
+     * has a different author or has a different version
+     */
+    @Transactional
+    @Query(value = "select * from final table (update message"
+        + " set messageText = :messageText, version = version + 1"
+        + " where messageId = :messageId and postedBy = :postedBy"
+        + " and (:version < 0 or version = :version))",
+        nativeQuery = true)
+    List<Message> updateMessageTextByAuthor(@Param("messageId") int messageId,
+        @Param("postedBy") int postedBy,
+        @Param("messageText") String messageText,
+        @Param("version") int version);
+
+    /**
+     * Deletes all messages with the given IDs in a single DELETE statement,
+     * returning the ID and author of each deleted row from H2's OLD TABLE
+     * data change delta table, so callers learn whose messages were removed
+     * without a separate query. IDs that do not exist are ignored. Commits
+     * on return unless called inside an existing transaction.
+     * 
+     * @return messageId and postedBy of each deleted message
+     */
+    @Transactional
+    @Query(value = "select messageId, postedBy from old table"
+        + " (delete from message where messageId in :messageIds)",
+        nativeQuery = true)
+    List<Object[]> deleteMessagesReturningAuthors(
+        @Param("messageIds") Collection<Integer> messageIds);
+
+    /**
+     * Counts the messages posted by each account that has any, in a single
+     * grouped query.
+     * 
+     * @return postedBy and message count pairs
+     */
+    @Query("select m.postedBy, count(m) from Message m"
+        + " where m.postedBy is not null group by m.postedBy")
+    List<Object[]> countMessagesByPostedBy();
+
+    /**
+     * Streams all messages in ID order from a server-side cursor. Must be
+     * consumed, and closed, inside a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Query("select m from Message m order by m.messageId")
+    Stream<Message> streamAll();
+
+    /**
+     * Streams all messages posted by the given account in ID order. Must be
+     * consumed, and closed, inside a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Query("select m from Message m where m.postedBy = :postedBy"
+        + " order by m.messageId")
+    Stream<Message> streamByPostedBy(@Param("postedBy") int postedBy);
 }
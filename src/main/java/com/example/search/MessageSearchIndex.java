@@ -0,0 +1,412 @@
+package com.example.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.repository.MessageRepository;
+
+/**
+ * In-memory inverted index over message text, for ranked search without
+ * scanning the message table.
+ *
+ * Text is lowercased and split on anything that is not a letter or digit.
+ * Each term maps to a posting list of the message IDs containing it, kept
+ * sorted with the term's frequency in each message. A query matches the
+ * messages containing all of its terms: the shortest posting list is walked
+ * and the others are probed by binary search from a moving lower bound, so
+ * cost follows the rarest term rather than the most common one. Matches are
+ * ranked by BM25, ties going to the newer message, and only offset + limit
+ * of them are kept in a heap.
+ *
+ * The index is loaded from the database once the application is ready and
+ * then kept current from MessageEvents after their transactions commit.
+ * Events are published by whichever thread committed, so they can arrive
+ * out of order, and the load can read a row before or after an event for
+ * it. Each indexed message keeps its version and older text never
+ * replaces newer, and deleted IDs leave a tombstone that keeps a late
+ * update or the load from adding them back. Tombstones are kept until the
+ * load has finished and for a minute after the delete.
+ * Queries take a shared read lock and updates an exclusive write lock.
+ */
+@Component
+public class MessageSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final long TOMBSTONE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    // deletion time of each deleted ID, oldest first
+    private final Map<Integer, Long> tombstones = new LinkedHashMap<>();
+    private long totalLength;
+    private boolean loaded;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public MessageSearchIndex(MessageRepository messageRepository,
+        PlatformTransactionManager transactionManager) {
+        this.messageRepository = messageRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Index every message in the database, streaming and detaching them so
+     * the persistence context does not grow with the table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Message> messages = messageRepository.streamAll()) {
+                messages.forEach(message -> {
+                    this.add(message.getMessageId(), versionOf(message),
+                        message.getMessageText());
+                    entityManager.detach(message);
+                });
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            loaded = true;
+            this.pruneTombstones(System.nanoTime());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+                this.add(event.getMessageId(), versionOf(event.getMessage()),
+                    event.getMessage().getMessageText());
+                break;
+            case DELETED:
+                this.remove(event.getMessageId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Index a message, replacing any previous text it had, unless a newer
+     * version is already indexed or the message has been deleted
+     *
+     * @param messageId
+     * @param version
+     * @param text
+     */
+    public void add(int messageId, int version, String text) {
+        Map<String, Integer> frequencies = termFrequencies(text);
+        int length = 0;
+        for (int frequency : frequencies.values()) {
+            length += frequency;
+        }
+        String[] terms = frequencies.keySet().toArray(new String[0]);
+        lock.writeLock().lock();
+        try {
+            Document current = documents.get(messageId);
+            if (tombstones.containsKey(messageId)
+                || current != null && current.version >= version) {
+                return;
+            }
+            this.removeLocked(messageId);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new PostingList())
+                    .add(messageId, entry.getValue());
+            }
+            documents.put(messageId, new Document(terms, length, version));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted message from the index, if present, and keep it from
+     * being added back
+     *
+     * @param messageId
+     */
+    public void remove(int messageId) {
+        long now = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            this.removeLocked(messageId);
+            tombstones.remove(messageId);
+            tombstones.put(messageId, now);
+            this.pruneTombstones(now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the messages containing every term of the query, best match first
+     *
+     * @param query
+     * @param offset number of best matches to skip
+     * @param limit maximum number of IDs to return
+     * @return the matching message IDs in the requested range, and the total
+     * number of matches
+     */
+    public Hits search(String query, int offset, int limit) {
+        List<String> terms = new ArrayList<>(termFrequencies(query).keySet());
+        if (terms.isEmpty()) {
+            return new Hits(Collections.emptyList(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(terms.get(i));
+                if (lists[i] == null) {
+                    return new Hits(Collections.emptyList(), 0);
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            return this.intersect(lists, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Hits intersect(PostingList[] lists, int offset, int limit) {
+        int documentCount = documents.size();
+        double averageLength = (double) totalLength / documentCount;
+        double[] idf = new double[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            idf[i] = Math.log(1 + (documentCount - lists[i].size + 0.5)
+                / (lists[i].size + 0.5));
+        }
+        int wanted = offset + limit;
+        // min-heap on (score, messageId) holding the best matches so far
+        PriorityQueue<ScoredId> best = new PriorityQueue<>(wanted + 1);
+        int[] positions = new int[lists.length];
+        int total = 0;
+        PostingList shortest = lists[0];
+        candidates:
+        for (int c = 0; c < shortest.size; c++) {
+            int messageId = shortest.ids[c];
+            for (int i = 1; i < lists.length; i++) {
+                int found = Arrays.binarySearch(lists[i].ids, positions[i],
+                    lists[i].size, messageId);
+                if (found < 0) {
+                    positions[i] = -found - 1;
+                    if (positions[i] == lists[i].size) {
+                        break candidates;
+                    }
+                    continue candidates;
+                }
+                positions[i] = found;
+            }
+            total++;
+            double lengthNorm = K1 * (1 - B + B
+                * documents.get(messageId).length / averageLength);
+            double score = 0;
+            for (int i = 0; i < lists.length; i++) {
+                int frequency = i == 0
+                    ? shortest.frequencies[c]
+                    : lists[i].frequencies[positions[i]];
+                score += idf[i] * frequency * (K1 + 1)
+                    / (frequency + lengthNorm);
+            }
+            if (best.size() < wanted) {
+                best.add(new ScoredId(messageId, score));
+            } else if (wanted > 0
+                && new ScoredId(messageId, score).compareTo(best.peek()) > 0) {
+                best.poll();
+                best.add(new ScoredId(messageId, score));
+            }
+        }
+        List<ScoredId> ranked = new ArrayList<>(best);
+        ranked.sort(Collections.reverseOrder());
+        List<Integer> page = new ArrayList<>(limit);
+        for (int i = offset; i < ranked.size(); i++) {
+            page.add(ranked.get(i).messageId);
+        }
+        return new Hits(page, total);
+    }
+
+    private void removeLocked(int messageId) {
+        Document previous = documents.remove(messageId);
+        if (previous == null) {
+            return;
+        }
+        totalLength -= previous.length;
+        for (String term : previous.terms) {
+            PostingList list = postings.get(term);
+            list.remove(messageId);
+            if (list.size == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private void pruneTombstones(long now) {
+        if (!loaded) {
+            return;
+        }
+        Iterator<Long> deletedAt = tombstones.values().iterator();
+        while (deletedAt.hasNext()
+            && now - deletedAt.next() > TOMBSTONE_NANOS) {
+            deletedAt.remove();
+        }
+    }
+
+    private static int versionOf(Message message) {
+        return message.getVersion() == null ? 0 : message.getVersion();
+    }
+
+    private static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        if (text == null) {
+            return frequencies;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length()
+                && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                frequencies.merge(lower.substring(start, i), 1, Integer::sum);
+                start = -1;
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * A page of matching message IDs and the total number of matches
+     */
+    public static final class Hits {
+        private final List<Integer> messageIds;
+        private final int total;
+
+        Hits(List<Integer> messageIds, int total) {
+            this.messageIds = messageIds;
+            this.total = total;
+        }
+
+        public List<Integer> getMessageIds() {
+            return messageIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    private static final class Document {
+        final String[] terms;
+        final int length;
+        final int version;
+
+        Document(String[] terms, int length, int version) {
+            this.terms = terms;
+            this.length = length;
+            this.version = version;
+        }
+    }
+
+    private static final class ScoredId implements Comparable<ScoredId> {
+        final int messageId;
+        final double score;
+
+        ScoredId(int messageId, double score) {
+            this.messageId = messageId;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredId other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0
+                ? byScore : Integer.compare(messageId, other.messageId);
+        }
+    }
+
+    /**
+     * Sorted message IDs with parallel term frequencies. IDs are assigned in
+     * increasing order, so new messages append at the end.
+     */
+    static final class PostingList {
+        int[] ids = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void add(int messageId, int frequency) {
+            int index = size == 0 || ids[size - 1] < messageId
+                ? -(size + 1) : Arrays.binarySearch(ids, 0, size, messageId);
+            if (index >= 0) {
+                frequencies[index] = frequency;
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1,
+                size - index);
+            ids[index] = messageId;
+            frequencies[index] = frequency;
+            size++;
+        }
+
+        void remove(int messageId) {
+            int index = Arrays.binarySearch(ids, 0, size, messageId);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index,
+                size - index - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.exception.HashingUnavailableException;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashing with a tunable iteration count.
+ *
+ * Hashing is deliberately CPU-heavy, so it runs on a dedicated executor with
+ * a fixed number of threads and a bounded queue rather than on request
+ * threads. When the queue is full new work is rejected immediately, so a
+ * login storm is shed instead of queuing without bound, and request threads
+ * stay free for everything else. PBKDF2 is computed here rather than by the
+ * JCE's SecretKeyFactory so that it checks for interruption between rounds:
+ * a caller that times out cancels its hash and frees the worker.
+ *
+ * Hashes are stored as pbkdf2-sha256$iterations$salt$hash with Base64 salt
+ * and hash. Stored values without that prefix are treated as legacy
+ * plaintext passwords, which still verify but report needsRehash().
+ */
+@Component
+public class PasswordHasher {
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SALT_BYTES = 16;
+    // rounds between checks for interruption
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final int iterations;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+    private final String dummyHash;
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public PasswordHasher(
+        @Value("${app.password.iterations:310000}") int iterations,
+        @Value("${app.password.threads:0}") int threads,
+        @Value("${app.password.queue-capacity:256}") int queueCapacity,
+        @Value("${app.password.timeout:5s}") Duration timeout) {
+        this.iterations = iterations;
+        this.timeout = timeout;
+        int poolSize = threads > 0
+            ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        // no password hashes to an all-zero key, so this never matches
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        this.dummyHash = PREFIX + "$" + iterations + "$"
+            + encoder.encodeToString(salt) + "$"
+            + encoder.encodeToString(new byte[32]);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hash a password on the hashing executor and wait for the result
+     *
+     * @param password
+     * @return the encoded hash
+     * @throws HashingUnavailableException if the executor is saturated or the
+     * hash does not complete in time
+     */
+    public String hash(String password) throws HashingUnavailableException {
+        return this.await(() -> this.hashNow(password));
+    }
+
+    /**
+     * Check a password against a stored value on the hashing executor and
+     * wait for the result
+     *
+     * @param password
+     * @param stored encoded hash, or a legacy plaintext password
+     * @return true if the password matches
+     * @throws HashingUnavailableException if the executor is saturated or the
+     * check does not complete in time
+     */
+    public boolean matches(String password, String stored)
+        throws HashingUnavailableException {
+        if (!this.isHashed(stored)) {
+            return this.constantTimeEquals(password, stored);
+        }
+        return this.await(() -> this.matchesNow(password, stored));
+    }
+
+    /**
+     * Check a password against a hash that never matches, taking as long as
+     * checking against a real one, for a login whose account does not exist.
+     * Returning early would let response times reveal which usernames are
+     * registered.
+     *
+     * @param password
+     * @throws HashingUnavailableException if the executor is saturated or the
+     * check does not complete in time
+     */
+    public void matchesNone(String password)
+        throws HashingUnavailableException {
+        this.await(() -> this.matchesNow(password, dummyHash));
+    }
+
+    /**
+     * Hash a password in the background, for upgrading stored values where
+     * nobody waits on the result; skipped if the executor is saturated
+     *
+     * @param password
+     * @param then receives the encoded hash
+     */
+    public void hashLater(String password, Consumer<String> then) {
+        try {
+            executor.execute(() -> {
+                try {
+                    then.accept(this.hashNow(password));
+                } catch (CancellationException e) {
+                    // interrupted by shutdown
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Check whether a stored value should be replaced with a fresh hash,
+     * because it is legacy plaintext or uses a different iteration count
+     *
+     * @param stored
+     * @return true if the value should be rehashed
+     */
+    public boolean needsRehash(String stored) {
+        if (!this.isHashed(stored)) {
+            return true;
+        }
+        return !stored.startsWith(PREFIX + "$" + iterations + "$");
+    }
+
+    /**
+     * Hash a password on the calling thread
+     *
+     * @param password
+     * @return the encoded hash
+     * @throws CancellationException if the thread is interrupted
+     */
+    public String hashNow(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = this.pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt)
+            + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Check a password against an encoded hash on the calling thread
+     *
+     * @param password
+     * @param stored encoded hash
+     * @return true if the password matches
+     * @throws CancellationException if the thread is interrupted
+     */
+    public boolean matchesNow(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        int storedIterations = Integer.parseInt(parts[1]);
+        byte[] salt = Base64.getDecoder().decode(parts[2]);
+        byte[] expected = Base64.getDecoder().decode(parts[3]);
+        return MessageDigest.isEqual(expected,
+            this.pbkdf2(password, salt, storedIterations));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * The hashing executor, exposed so it can be instrumented
+     */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    public long getHashCount() {
+        return hashes.sum();
+    }
+
+    public long getHashNanos() {
+        return hashNanos.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private <T> T await(Callable<T> task) throws HashingUnavailableException {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingUnavailableException("Hashing queue is full", e);
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HashingUnavailableException("Hashing timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HashingUnavailableException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * PBKDF2-HMAC-SHA256 with a single 32-byte output block, as RFC 8018
+     * defines it and the JCE computes it for PBKDF2WithHmacSHA256
+     */
+    private byte[] pbkdf2(String password, byte[] salt, int rounds) {
+        long start = System.nanoTime();
+        byte[] key = password.getBytes(StandardCharsets.UTF_8);
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new PasswordKey(key));
+            byte[] block = new byte[mac.getMacLength()];
+            mac.update(salt);
+            mac.update(new byte[] {0, 0, 0, 1});
+            mac.doFinal(block, 0);
+            byte[] result = block.clone();
+            for (int round = 1; round < rounds; round++) {
+                if (round % CHECK_INTERVAL == 0 && Thread.interrupted()) {
+                    throw new CancellationException("Hashing interrupted");
+                }
+                mac.update(block);
+                mac.doFinal(block, 0);
+                for (int i = 0; i < result.length; i++) {
+                    result[i] ^= block[i];
+                }
+            }
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+            hashes.increment();
+            hashNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    private boolean constantTimeEquals(String a, String b) {
+        if (a == null || b == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8),
+            b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Raw HMAC key; unlike SecretKeySpec it accepts an empty password
+     */
+    private static final class PasswordKey implements SecretKey {
+        private static final long serialVersionUID = 1L;
+        private final byte[] key;
+
+        PasswordKey(byte[] key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return ALGORITHM;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return key.clone();
+        }
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r,
+                "password-hash-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.security;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Resolves an "Authorization: Bearer token" header to the account ID the
+ * token was issued for and exposes it to handlers as the request attribute
+ * ACCOUNT_ID_ATTRIBUTE, without touching the database.
+ *
+ * Requests without the header pass through unauthenticated. Requests with an
+ * unknown or expired token are rejected with status 401.
+ */
+@Component
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+    public static final String ACCOUNT_ID_ATTRIBUTE = "authenticatedAccountId";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenStore tokenStore;
+
+    @Autowired
+    public TokenAuthenticationFilter(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+        HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            Integer accountId = tokenStore.resolve(
+                header.substring(BEARER_PREFIX.length()).trim());
+            if (accountId == null) {
+                response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                response.getWriter().write("Unauthorized");
+                return;
+            }
+            request.setAttribute(ACCOUNT_ID_ATTRIBUTE, accountId);
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.security;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory store of session tokens issued at login, mapping each token to
+ * the account it was issued for.
+ *
+ * Tokens are 256-bit random values. They are kept in a ConcurrentHashMap, so
+ * resolving a token is a lock-free read and issuing one only locks a single
+ * bin. Each token expires a fixed time after issue. Expired tokens are
+ * rejected on lookup and removed by a background sweep.
+ */
+@Component
+public class TokenStore {
+    private static final int TOKEN_BYTES = 32;
+
+    private final long ttlNanos;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService sweeper;
+
+    @Autowired
+    public TokenStore(@Value("${app.tokens.ttl:1h}") Duration ttl,
+        @Value("${app.tokens.sweep-interval:1m}") Duration sweepInterval) {
+        this.ttlNanos = ttl.toNanos();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepInterval.toMillis(),
+            sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Issue a new token for the given account
+     *
+     * @param accountId
+     * @return URL-safe token string
+     */
+    public String issue(int accountId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(bytes);
+        sessions.put(token, new Session(accountId, System.nanoTime() + ttlNanos));
+        return token;
+    }
+
+    /**
+     * Resolve a token to the account it was issued for
+     *
+     * @param token
+     * @return the account ID, or null if the token is unknown or expired
+     */
+    public Integer resolve(String token) {
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        if (System.nanoTime() - session.expiresAt > 0) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session.accountId;
+    }
+
+    /**
+     * Invalidate a token
+     *
+     * @param token
+     */
+    public void revoke(String token) {
+        sessions.remove(token);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Remove every expired token
+     */
+    void sweep() {
+        long now = System.nanoTime();
+        sessions.values().removeIf(session -> now - session.expiresAt > 0);
+    }
+
+    private static final class Session {
+        final int accountId;
+        final long expiresAt;
+
+        Session(int accountId, long expiresAt) {
+            this.accountId = accountId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -4,36 +4,65 @@ import org.apache.tomcat.jni.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.example.cache.AccountIndex;
+import com.example.cache.HomeTimelines;
+import com.example.cache.MessageCounts;
+import com.example.dto.AccountStats;
 import com.example.entity.Account;
+import com.example.exception.HashingUnavailableException;
 import com.example.exception.UsernameTakenException;
 import com.example.repository.AccountRepository;
+import com.example.repository.FollowRepository;
+import com.example.security.PasswordHasher;
+import com.example.security.TokenStore;
 
 @Service
 public class AccountService {
     private AccountRepository accountRepository;
+    private AccountIndex accountIndex;
+    private PasswordHasher passwordHasher;
+    private TokenStore tokenStore;
+    private MessageCounts messageCounts;
+    private FollowRepository followRepository;
+    private HomeTimelines homeTimelines;
 
     @Autowired
-    public AccountService(AccountRepository accountRepository){
+    public AccountService(AccountRepository accountRepository,
+        AccountIndex accountIndex, PasswordHasher passwordHasher,
+        TokenStore tokenStore, MessageCounts messageCounts,
+        FollowRepository followRepository, HomeTimelines homeTimelines){
         this.accountRepository = accountRepository;
+        this.accountIndex = accountIndex;
+        this.passwordHasher = passwordHasher;
+        this.tokenStore = tokenStore;
+        this.messageCounts = messageCounts;
+        this.followRepository = followRepository;
+        this.homeTimelines = homeTimelines;
     }
 
     /**
-     * Register a new account
+     * Register a new account. Only a salted hash of the password is stored.
      * 
      * @param account
      * @return the given account with its generated ID if registration
      * successful, else null
      * @throws UsernameTakenException if the given username is already taken
+     * @throws HashingUnavailableException if the password cannot be hashed
+     * because the hashing executor is saturated
      */
     public Account registerAccount(Account account)
-        throws UsernameTakenException {
+        throws UsernameTakenException, HashingUnavailableException {
         if (!account.getUsername().isEmpty() 
             && account.getPassword().length() >= 4) {
-            if (accountRepository.findAccountByUsername(account.getUsername())
-                != null) {
+            if (accountIndex.usernameTaken(account.getUsername())) {
                 throw new UsernameTakenException();
             } else {
-                return accountRepository.save(account);
+                Account saved = accountRepository.save(new Account(
+                    account.getUsername(),
+                    passwordHasher.hash(account.getPassword())));
+                accountIndex.add(saved);
+                account.setAccountId(saved.getAccountId());
+                return account;
             }
         } else {  // fail and return null if conditions not met
             return null;
@@ -41,15 +70,101 @@ public class AccountService {
     }
 
     /**
-     * Verify a login by comparing the given account against the database,
-     * returning a matching account if one is found with the same username and
-     * password
+     * Verify a login by looking up the account by username and checking the
+     * given password against its stored hash. An unknown username is checked
+     * against a dummy hash, so it cannot be told apart by response time.
+     * Accounts whose stored password is legacy plaintext or was hashed with a
+     * different cost are rehashed in the background after a successful login.
      * 
      * @param account
-     * @return account with matching username and password if found, else null
+     * @return account with matching username and password if found, else null.
+     * Like the request, it carries the submitted password, never the stored
+     * hash.
+     * @throws HashingUnavailableException if the password cannot be checked
+     * because the hashing executor is saturated
      */
-    public Account verifyLogin(Account account) {
-        return accountRepository.findAccountByUsernameAndPassword(
-            account.getUsername(), account.getPassword());
+    public Account verifyLogin(Account account)
+        throws HashingUnavailableException {
+        if (account.getUsername() == null || account.getPassword() == null) {
+            return null;
+        }
+        Account stored = accountRepository.findAccountByUsername(
+            account.getUsername());
+        if (stored == null) {
+            passwordHasher.matchesNone(account.getPassword());
+            return null;
+        }
+        if (!passwordHasher.matches(
+            account.getPassword(), stored.getPassword())) {
+            return null;
+        }
+        if (passwordHasher.needsRehash(stored.getPassword())) {
+            int accountId = stored.getAccountId();
+            passwordHasher.hashLater(account.getPassword(),
+                hash -> accountRepository.updatePassword(accountId, hash));
+        }
+        return new Account(stored.getAccountId(), stored.getUsername(),
+            account.getPassword());
+    }
+
+    /**
+     * Issue a session token for an account that has just logged in. Later
+     * requests can present it instead of credentials and are resolved to the
+     * account without a database lookup.
+     * 
+     * @param account a verified account
+     * @return the token
+     */
+    public String issueToken(Account account) {
+        return tokenStore.issue(account.getAccountId());
+    }
+
+    /**
+     * Provides summary figures for an account from in-memory counters,
+     * without querying its messages
+     * 
+     * @param accountId
+     * @return the account's stats, or null if the account does not exist
+     */
+    public AccountStats getAccountStats(int accountId) {
+        if (!accountIndex.accountExists(accountId)) {
+            return null;
+        }
+        return new AccountStats(accountId, messageCounts.count(accountId));
+    }
+
+    /**
+     * Make one account follow another, so the followee's messages appear in
+     * the follower's home timeline. Following an account twice has no
+     * further effect.
+     * 
+     * @param followerId
+     * @param followeeId
+     * @return true if both accounts exist and are different, else false
+     */
+    public boolean follow(int followerId, int followeeId) {
+        if (followerId == followeeId
+            || !accountIndex.accountExists(followerId)
+            || !accountIndex.accountExists(followeeId)) {
+            return false;
+        }
+        followRepository.follow(followerId, followeeId);
+        homeTimelines.follow(followerId, followeeId);
+        return true;
+    }
+
+    /**
+     * Stop one account following another
+     * 
+     * @param followerId
+     * @param followeeId
+     * @return number of follows removed: 1 if the follow existed, otherwise 0
+     */
+    public int unfollow(int followerId, int followeeId) {
+        int removed = followRepository.unfollow(followerId, followeeId);
+        if (removed > 0) {
+            homeTimelines.unfollow(followerId, followeeId);
+        }
+        return removed;
     }
 }
@@ -1,45 +1,196 @@
 package com.example.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.cache.AccountIndex;
+import com.example.cache.AuthorVersions;
+import com.example.cache.HomeTimelines;
+import com.example.cache.MessageCache;
+import com.example.dto.MessageBatchResult;
+import com.example.dto.MessagePage;
+import com.example.dto.MessageSearchResult;
+import com.example.dto.PageCursor;
 import com.example.entity.Message;
-import com.example.repository.AccountRepository;
+import com.example.event.MessageEvent;
+import com.example.exception.IngestQueueFullException;
+import com.example.exception.InvalidCursorException;
+import com.example.exception.VersionConflictException;
+import com.example.ingest.MessageIngestQueue;
 import com.example.repository.MessageRepository;
+import com.example.search.MessageSearchIndex;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 @Service
 public class MessageService {
-    private AccountRepository accountRepository;
+    /**
+     * Timeline cursor time standing for a message without a posting time
+     */
+    private static final long UNTIMED = Long.MIN_VALUE;
+
+    private AccountIndex accountIndex;
     private MessageRepository messageRepository;
+    private ObjectMapper objectMapper;
+    private MessageCache messageCache;
+    private MessageSearchIndex searchIndex;
+    private ApplicationEventPublisher eventPublisher;
+    private HomeTimelines homeTimelines;
+    private MessageIngestQueue ingestQueue;
+    private AuthorVersions authorVersions;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.page.default-size:50}")
+    private int defaultPageSize;
+    @Value("${app.page.max-size:500}")
+    private int maxPageSize;
+    @Value("${app.messages.batch.max-size:1000}")
+    private int maxBatchSize;
+    @Value("${app.messages.bulk-delete.max-size:10000}")
+    private int maxBulkDeleteSize;
+    @Value("${app.search.max-offset:10000}")
+    private int maxSearchOffset;
 
     @Autowired
-    public MessageService(AccountRepository accountRepository,
-        MessageRepository messageRepository) {
-        this.accountRepository = accountRepository;
+    public MessageService(AccountIndex accountIndex,
+        MessageRepository messageRepository, ObjectMapper objectMapper,
+        MessageCache messageCache, MessageSearchIndex searchIndex,
+        ApplicationEventPublisher eventPublisher,
+        HomeTimelines homeTimelines, MessageIngestQueue ingestQueue,
+        AuthorVersions authorVersions) {
+        this.accountIndex = accountIndex;
         this.messageRepository = messageRepository;
+        this.objectMapper = objectMapper;
+        this.messageCache = messageCache;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.homeTimelines = homeTimelines;
+        this.ingestQueue = ingestQueue;
+        this.authorVersions = authorVersions;
     }
 
     /**
      * Add a message, only if its text is at least one and no more than 255
      * characters, and the user it is posted by actually exists in the
      * database. Return the message if successful, otherwise return null.
+     * In write-behind mode the message is queued and written in a later
+     * group commit; see MessageIngestQueue.
      * 
      * @param message
      * @return the given message with its assigned ID if adding was successful,
      * else null.
+     * @throws IngestQueueFullException if in write-behind mode and the
+     * ingestion queue is full
      */
-    public Message createMessage(Message message) {
-        if (!message.getMessageText().isEmpty()
-            && message.getMessageText().length() <= 0xFF
-            && accountRepository.findById(message.getPostedBy()).isPresent()) {
-            return messageRepository.save(message);
+    public Message createMessage(Message message)
+        throws IngestQueueFullException {
+        if (this.isValidText(message.getMessageText())
+            && message.getPostedBy() != null
+            && accountIndex.accountExists(message.getPostedBy())) {
+            return this.store(message);
         } else {
             return null;
         }
     }
 
+    /**
+     * Add a message on behalf of an account whose identity has already been
+     * established from a session token. The message is posted by that
+     * account, and since tokens are only issued to existing accounts the
+     * existence check is skipped. Return the message if successful,
+     * otherwise return null.
+     * 
+     * @param accountId authenticated account
+     * @param message
+     * @return the given message with its assigned ID if adding was successful,
+     * else null.
+     * @throws IngestQueueFullException if in write-behind mode and the
+     * ingestion queue is full
+     */
+    public Message createMessageAs(int accountId, Message message)
+        throws IngestQueueFullException {
+        if (!this.isValidText(message.getMessageText())) {
+            return null;
+        }
+        message.setPostedBy(accountId);
+        return this.store(message);
+    }
+
+    /**
+     * Add a batch of messages in one transaction. Each message is validated
+     * as in createMessage, with the existence of all posting accounts checked
+     * at once, and the valid ones are inserted together so Hibernate can
+     * batch the statements.
+     * 
+     * @param messages
+     * @return one result per given message, in the same order, or null if
+     * the batch is empty or larger than the configured maximum
+     */
+    @Transactional
+    public List<MessageBatchResult> createMessages(List<Message> messages) {
+        if (messages == null || messages.isEmpty()
+            || messages.size() > maxBatchSize) {
+            return null;
+        }
+        List<Integer> postedBy = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            postedBy.add(message.getPostedBy());
+        }
+        Set<Integer> existing = accountIndex.existingAccountIds(postedBy);
+        boolean[] accepted = new boolean[messages.size()];
+        List<Message> valid = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            if (this.isValidText(message.getMessageText())
+                && existing.contains(message.getPostedBy())) {
+                // IDs and versions are always generated, and a
+                // client-supplied one would turn the insert into a merge
+                message.setMessageId(null);
+                message.setVersion(null);
+                accepted[i] = true;
+                valid.add(message);
+            }
+        }
+        // saveAll persists the given instances, so accepted messages get
+        // their IDs assigned in place
+        messageRepository.saveAll(valid);
+        List<MessageBatchResult> results = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            if (accepted[i]) {
+                messageCache.put(messages.get(i));
+                eventPublisher.publishEvent(
+                    MessageEvent.created(messages.get(i)));
+                results.add(MessageBatchResult.created(messages.get(i)));
+            } else {
+                results.add(MessageBatchResult.rejected());
+            }
+        }
+        return results;
+    }
+
     /**
      * Provides a list of all messages in the database
      * 
@@ -49,48 +200,330 @@ public class MessageService {
         return messageRepository.findAll();
     }
 
+    /**
+     * Provides one page of messages in ascending ID order, starting just after
+     * the message the given cursor points to
+     * 
+     * @param cursor token from a previous page, or null for the first page
+     * @param limit requested page size, or null for the default
+     * @return page of messages and the cursor for the next page, if any
+     * @throws InvalidCursorException if the cursor cannot be decoded
+     */
+    public MessagePage getMessagePage(String cursor, Integer limit)
+        throws InvalidCursorException {
+        int pageSize = this.pageSize(limit);
+        int afterId = cursor == null
+            ? Integer.MIN_VALUE : (int) PageCursor.decode(cursor, 1)[0];
+        List<Message> rows = messageRepository
+            .findByMessageIdGreaterThanOrderByMessageIdAsc(
+                afterId, PageRequest.of(0, pageSize + 1));
+        return MessagePage.of(rows, pageSize,
+            m -> PageCursor.encode(m.getMessageId()));
+    }
+
+    /**
+     * Writes messages to the given stream as newline-delimited JSON, one
+     * message per line, reading them from a database cursor and detaching
+     * each one once written so memory use stays constant regardless of how
+     * many messages are exported.
+     * 
+     * @param postedBy account whose messages to export, or null for all
+     * @param out stream to write to; it is flushed but not closed
+     * @throws IOException if writing to the stream fails
+     */
+    @Transactional(readOnly = true)
+    public void exportMessages(Integer postedBy, OutputStream out)
+        throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<Message> messages = postedBy == null
+                ? messageRepository.streamAll()
+                : messageRepository.streamByPostedBy(postedBy);
+            JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null)) {
+            Iterator<Message> it = messages.iterator();
+            while (it.hasNext()) {
+                Message message = it.next();
+                writer.writeValue(generator, message);
+                generator.writeRaw('\n');
+                entityManager.detach(message);
+            }
+            generator.flush();
+        }
+    }
+
     /**
      * Provides the message with the given ID if it is in the database,
-     * or null otherwise
+     * or null otherwise. Reads through the message cache; a row read
+     * while the message is being edited or deleted is not cached.
      * @param messageId
      * @return message with ID if present, else null
      */
     public Message getMessageById(int messageId) {
-        return messageRepository.findById(messageId).orElse(null);
+        Message message = messageCache.get(messageId);
+        if (message == null) {
+            long readToken = messageCache.readToken();
+            message = messageRepository.findById(messageId).orElse(null);
+            if (message != null) {
+                messageCache.put(message, readToken);
+            }
+        }
+        return message;
     }
 
     /**
-     * Delete message with the given ID. If the message did not exist to begin
-     * with, return null, otherwise return the message now deleted.
+     * Provides a strong ETag for a message from its ID and version. Every
+     * edit increments the version, so the tag changes whenever the message
+     * does.
+     * 
+     * @param message
+     * @return quoted entity tag
+     */
+    public String getMessageETag(Message message) {
+        return "\"" + message.getMessageId() + "-" + message.getVersion()
+            + "\"";
+    }
+
+    /**
+     * Evaluates an If-Match header for an edit of a message, as RFC 9110
+     * defines it: * matches if the message exists, and a list of tags
+     * matches if any strong tag is the message's current one; weak tags
+     * never match. Only the message's own tags, as given by getMessageETag,
+     * can match. When one version is named it is left to the edit to check,
+     * in the same statement as the update; otherwise the current version is
+     * read and must be one of them.
+     * 
      * @param messageId
-     * @return message deleted if it existed, else null
+     * @param ifMatch If-Match header value
+     * @return the version the edit must still find, or null for any
+     * @throws VersionConflictException if the precondition fails
      */
-    public Message deleteMessageWithId(int messageId) {
-        Message message = this.getMessageById(messageId);
-        if (message != null) {
-            messageRepository.deleteById(messageId);
+    public Integer getVersionForIfMatch(int messageId, String ifMatch)
+        throws VersionConflictException {
+        if (ifMatch.trim().equals("*")) {
+            if (this.getMessageById(messageId) == null) {
+                throw new VersionConflictException();
+            }
+            return null;
         }
-        return message;
+        String prefix = "\"" + messageId + "-";
+        List<Integer> versions = new ArrayList<>();
+        int i = 0;
+        while (i < ifMatch.length()) {
+            char c = ifMatch.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            boolean weak = ifMatch.startsWith("W/", i);
+            int open = weak ? i + 2 : i;
+            int close = open < ifMatch.length() && ifMatch.charAt(open) == '"'
+                ? ifMatch.indexOf('"', open + 1) : -1;
+            if (close < 0) {
+                // not an entity tag list
+                break;
+            }
+            String tag = ifMatch.substring(open, close + 1);
+            i = close + 1;
+            if (weak || !tag.startsWith(prefix)
+                || tag.length() <= prefix.length() + 1) {
+                continue;
+            }
+            try {
+                versions.add(Integer.valueOf(
+                    tag.substring(prefix.length(), tag.length() - 1)));
+            } catch (NumberFormatException e) {
+                // not one of this message's tags
+            }
+        }
+        if (versions.isEmpty()) {
+            throw new VersionConflictException();
+        }
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+        Message current = messageRepository.findById(messageId).orElse(null);
+        if (current == null || !versions.contains(current.getVersion())) {
+            throw new VersionConflictException();
+        }
+        return current.getVersion();
+    }
+
+    /**
+     * Provides the ETag of the message with the given ID only if the message
+     * is cached, so a conditional read can be answered without the database
+     * 
+     * @param messageId
+     * @return quoted entity tag, or null if the message is not cached
+     */
+    public String getCachedMessageETag(int messageId) {
+        Message message = messageCache.get(messageId);
+        return message == null ? null : this.getMessageETag(message);
+    }
+
+    /**
+     * Provides the ETag of a list of the messages posted by a user, from an
+     * in-memory per-author version, without reading them. The tag also holds
+     * the query, so each time range and page has a tag of its own. Call it
+     * before reading the messages; it checks the query first, so an invalid
+     * one is never answered as not modified.
+     * 
+     * @param postedBy
+     * @param since earliest posting time, inclusive, or null for no bound
+     * @param until latest posting time, exclusive, or null for no bound
+     * @param cursor token from a previous page, or null for the first page
+     * @param limit requested page size, or null for the default
+     * @return quoted entity tag, or null if since is after until
+     * @throws InvalidCursorException if the cursor cannot be decoded
+     */
+    public String getMessagesByUserETag(int postedBy, Long since, Long until,
+        String cursor, Integer limit) throws InvalidCursorException {
+        if (since != null && until != null && since > until) {
+            return null;
+        }
+        if (cursor != null) {
+            PageCursor.decode(cursor, 2);
+        }
+        String etag = authorVersions.etag(postedBy);
+        if (since == null && until == null && cursor == null
+            && limit == null) {
+            return etag;
+        }
+        // cursors are URL-safe Base64, which is valid inside an entity tag
+        StringBuilder sb = new StringBuilder(
+            etag.substring(0, etag.length() - 1));
+        if (since != null) {
+            sb.append(";since=").append(since);
+        }
+        if (until != null) {
+            sb.append(";until=").append(until);
+        }
+        if (cursor != null) {
+            sb.append(";cursor=").append(cursor);
+        }
+        if (limit != null) {
+            sb.append(";limit=").append(limit);
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Delete message with the given ID using a single DELETE statement.
+     * Returns the number of messages deleted: 1 if the message existed,
+     * otherwise 0.
+     * @param messageId
+     * @return number of messages deleted
+     */
+    public int deleteMessageWithId(int messageId) {
+        return this.deleteMessages(Collections.singletonList(messageId));
+    }
+
+    /**
+     * Delete all messages with the given IDs using a single DELETE statement.
+     * IDs that do not exist are ignored.
+     * @param messageIds
+     * @return number of messages deleted, or null if no IDs were given or
+     * there are more than the configured maximum
+     */
+    public Integer deleteMessagesWithIds(List<Integer> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()
+            || messageIds.size() > maxBulkDeleteSize) {
+            return null;
+        }
+        return this.deleteMessages(messageIds);
     }
 
     /**
-     * Edits the message with the given ID to have the given text. Returns the
-     * edited messsage if successful, otherwise returns null (if ID not found,
-     * the message is not within 1-255 characters, or an exception occurs)
+     * Edits the message with the given ID to have the given text, using a
+     * single UPDATE statement that also increments its version. Returns the
+     * number of messages edited: 1 if successful, otherwise 0 (if ID not
+     * found or the message is not within 1-255 characters). If an expected
+     * version is given, the message is only edited if it still has that
+     * version, checked in the same statement without taking a lock.
      * 
      * @param messageId
      * @param messageText
-     * @return edited message if successful, otherwise null
+     * @param expectedVersion version the caller last saw, or null to edit
+     * whatever the current version is
+     * @return number of messages edited
+     * @throws VersionConflictException if the message exists but has been
+     * edited since the expected version
      */
-    public Message editMessageWithId(int messageId, String messageText) {
-        if (!messageText.isEmpty() && messageText.length() <= 0xFF) {
-            Message message = this.getMessageById(messageId);
-            if (message != null) {
-                message.setMessageText(messageText);
-                return message;
-            }
+    public int editMessageWithId(int messageId, String messageText,
+        Integer expectedVersion) throws VersionConflictException {
+        if (!this.isValidText(messageText)) {
+            return 0;
+        }
+        this.forgetLoadedMessages();
+        List<Message> updated = messageRepository.updateMessageText(
+            messageId, messageText,
+            expectedVersion == null ? -1 : expectedVersion);
+        if (updated.isEmpty() && expectedVersion != null) {
+            this.checkConflict(messageId, null);
+        }
+        return this.edited(updated);
+    }
+
+    /**
+     * Edits the message with the given ID to have the given text, only if it
+     * was posted by the given authenticated account. Ownership and the
+     * expected version are checked in the same UPDATE statement, so no read
+     * is needed first. Returns 1 if successful, otherwise 0 (if ID not found,
+     * the message belongs to another account, or the text is not within
+     * 1-255 characters)
+     * 
+     * @param messageId
+     * @param accountId authenticated account
+     * @param messageText
+     * @param expectedVersion version the caller last saw, or null to edit
+     * whatever the current version is
+     * @return number of messages edited
+     * @throws VersionConflictException if the account's message exists but
+     * has been edited since the expected version
+     */
+    public int editMessageWithId(int messageId, int accountId,
+        String messageText, Integer expectedVersion)
+        throws VersionConflictException {
+        if (!this.isValidText(messageText)) {
+            return 0;
+        }
+        this.forgetLoadedMessages();
+        List<Message> updated = messageRepository.updateMessageTextByAuthor(
+            messageId, accountId, messageText,
+            expectedVersion == null ? -1 : expectedVersion);
+        if (updated.isEmpty() && expectedVersion != null) {
+            this.checkConflict(messageId, accountId);
         }
-        return null;
+        return this.edited(updated);
+    }
+
+    /**
+     * Search message text for all words of the given query, best match
+     * first, using the in-memory search index; only the page of matching
+     * messages is read, through the message cache
+     * 
+     * @param query
+     * @param offset number of best matches to skip, or null for none
+     * @param limit requested page size, or null for the default
+     * @return page of matching messages, or null if the query is blank or
+     * the offset is out of range
+     */
+    public MessageSearchResult searchMessages(String query, Integer offset,
+        Integer limit) {
+        int start = offset == null ? 0 : offset;
+        if (query == null || query.isBlank() || start < 0
+            || start > maxSearchOffset) {
+            return null;
+        }
+        int pageSize = this.pageSize(limit);
+        MessageSearchIndex.Hits hits = searchIndex.search(query, start,
+            pageSize);
+        List<Message> messages = this.getMessagesByIds(hits.getMessageIds());
+        Integer nextOffset = start + pageSize < hits.getTotal()
+            ? start + pageSize : null;
+        return new MessageSearchResult(messages, hits.getTotal(), nextOffset);
     }
 
     /**
@@ -101,4 +534,241 @@ public class MessageService {
     public List<Message> getAllMessagesByUser(int postedBy) {
         return messageRepository.findMessagesByPostedBy(postedBy);
     }
+
+    /**
+     * Provides one page of the messages posted by a user, newest first,
+     * starting just after the message the given cursor points to
+     * 
+     * @param postedBy
+     * @param cursor token from a previous page, or null for the first page
+     * @param limit requested page size, or null for the default
+     * @return page of messages and the cursor for the next page, if any
+     * @throws InvalidCursorException if the cursor cannot be decoded
+     */
+    public MessagePage getMessagePageByUser(int postedBy, String cursor,
+        Integer limit) throws InvalidCursorException {
+        int pageSize = this.pageSize(limit);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Message> rows;
+        if (cursor == null) {
+            rows = messageRepository
+                .findByPostedByOrderByTimePostedEpochDescMessageIdDesc(
+                    postedBy, page);
+        } else {
+            long[] keys = PageCursor.decode(cursor, 2);
+            rows = keys[0] == UNTIMED
+                ? messageRepository.findUntimedTimelinePageAfter(
+                    postedBy, (int) keys[1], page)
+                : messageRepository.findTimelinePageAfter(
+                    postedBy, keys[0], (int) keys[1], page);
+        }
+        return MessagePage.of(rows, pageSize, m -> PageCursor.encode(
+            m.getTimePostedEpoch() == null ? UNTIMED
+                : m.getTimePostedEpoch(),
+            m.getMessageId()));
+    }
+
+    /**
+     * Provides one page of messages posted in the given time range, oldest
+     * first, starting just after the message the given cursor points to
+     * 
+     * @param postedBy account whose messages to list, or null for all
+     * @param since earliest posting time, inclusive, or null for no bound
+     * @param until latest posting time, exclusive, or null for no bound
+     * @param cursor token from a previous page, or null for the first page
+     * @param limit requested page size, or null for the default
+     * @return page of messages and the cursor for the next page, if any, or
+     * null if since is after until
+     * @throws InvalidCursorException if the cursor cannot be decoded
+     */
+    public MessagePage getMessagePageInTimeRange(Integer postedBy, Long since,
+        Long until, String cursor, Integer limit)
+        throws InvalidCursorException {
+        long from = since == null ? Long.MIN_VALUE : since;
+        long to = until == null ? Long.MAX_VALUE : until;
+        if (from > to) {
+            return null;
+        }
+        int pageSize = this.pageSize(limit);
+        long time = from;
+        int afterId = Integer.MIN_VALUE;
+        if (cursor != null) {
+            long[] keys = PageCursor.decode(cursor, 2);
+            time = keys[0];
+            afterId = (int) keys[1];
+        }
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Message> rows = postedBy == null
+            ? messageRepository.findTimeRangePageAfter(to, time, afterId, page)
+            : messageRepository.findTimeRangePageByPostedByAfter(
+                postedBy, to, time, afterId, page);
+        return MessagePage.of(rows, pageSize, m -> PageCursor.encode(
+            m.getTimePostedEpoch(), m.getMessageId()));
+    }
+
+    /**
+     * Provides one page of an account's home timeline: the messages posted by
+     * the accounts it follows, most recently stored first. IDs come from the
+     * precomputed timeline and only the page of messages is read, through
+     * the message cache.
+     * 
+     * @param accountId
+     * @param cursor token from a previous page, or null for the first page
+     * @param limit requested page size, or null for the default
+     * @return page of messages and the cursor for the next page, if any, or
+     * null if the account does not exist
+     * @throws InvalidCursorException if the cursor cannot be decoded
+     */
+    public MessagePage getHomeTimelinePage(int accountId, String cursor,
+        Integer limit) throws InvalidCursorException {
+        if (!accountIndex.accountExists(accountId)) {
+            return null;
+        }
+        int pageSize = this.pageSize(limit);
+        int beforeId = cursor == null
+            ? Integer.MAX_VALUE : (int) PageCursor.decode(cursor, 1)[0];
+        List<Message> rows = this.getMessagesByIds(
+            homeTimelines.page(accountId, beforeId, pageSize + 1));
+        return MessagePage.of(rows, pageSize,
+            m -> PageCursor.encode(m.getMessageId()));
+    }
+
+    /**
+     * Check that message text is present and between 1 and 255 characters
+     * 
+     * @param messageText
+     * @return true if the text may be stored
+     */
+    private boolean isValidText(String messageText) {
+        return messageText != null && !messageText.isEmpty()
+            && messageText.length() <= 0xFF;
+    }
+
+    /**
+     * Save a validated message in its own transaction, or hand it to the
+     * write-behind queue, which caches and announces it itself
+     */
+    private Message store(Message message) throws IngestQueueFullException {
+        // IDs and versions are always generated, and a client-supplied one
+        // would turn the insert into a merge
+        message.setMessageId(null);
+        message.setVersion(null);
+        if (ingestQueue.isEnabled()) {
+            return ingestQueue.submit(message);
+        }
+        Message saved = messageRepository.save(message);
+        messageCache.put(saved);
+        eventPublisher.publishEvent(MessageEvent.created(saved));
+        return saved;
+    }
+
+    /**
+     * After a versioned edit matched no row, tell a missing message apart
+     * from a stale version. Only runs when an edit has already failed.
+     * 
+     * @param messageId
+     * @param postedBy required author, or null for any
+     * @throws VersionConflictException if the message exists with the
+     * required author, so its version must have changed
+     */
+    private void checkConflict(int messageId, Integer postedBy)
+        throws VersionConflictException {
+        Message current = messageRepository.findById(messageId).orElse(null);
+        if (current != null
+            && (postedBy == null || postedBy.equals(current.getPostedBy()))) {
+            throw new VersionConflictException();
+        }
+    }
+
+    /**
+     * Detach whatever the request has loaded before an UPDATE that returns
+     * the edited rows as entities. Hibernate returns an instance already in
+     * the persistence context in place of the returned row, and with
+     * open-in-view a request that read the message first would get its
+     * stale copy back, and it would be cached and announced.
+     */
+    private void forgetLoadedMessages() {
+        entityManager.clear();
+    }
+
+    /**
+     * Cache edited messages and announce them with their updated contents
+     * 
+     * @param updated rows returned by an UPDATE, which has committed
+     * @return number of messages edited
+     */
+    private int edited(List<Message> updated) {
+        for (Message message : updated) {
+            // a concurrent edit may commit later but reach the cache first,
+            // or a delete may commit in between; the cache keeps the newer
+            // version and drops puts after a delete
+            messageCache.put(message);
+            eventPublisher.publishEvent(MessageEvent.updated(message));
+        }
+        return updated.size();
+    }
+
+    /**
+     * Delete messages in one statement that also reports which rows went and
+     * who posted them, then drop them from the cache and announce them
+     */
+    private int deleteMessages(Collection<Integer> messageIds) {
+        List<Object[]> deleted =
+            messageRepository.deleteMessagesReturningAuthors(messageIds);
+        for (Object[] row : deleted) {
+            int messageId = ((Number) row[0]).intValue();
+            Integer postedBy = row[1] == null
+                ? null : ((Number) row[1]).intValue();
+            messageCache.invalidate(messageId);
+            eventPublisher.publishEvent(
+                MessageEvent.deleted(messageId, postedBy));
+        }
+        return deleted.size();
+    }
+
+    /**
+     * Look up messages in the given order, from the cache where possible and
+     * otherwise with one query for all the missing IDs; IDs that no longer
+     * exist are skipped
+     */
+    private List<Message> getMessagesByIds(List<Integer> messageIds) {
+        Map<Integer, Message> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer messageId : messageIds) {
+            Message cached = messageCache.get(messageId);
+            if (cached != null) {
+                found.put(messageId, cached);
+            } else {
+                missing.add(messageId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long readToken = messageCache.readToken();
+            for (Message message : messageRepository.findAllById(missing)) {
+                messageCache.put(message, readToken);
+                found.put(message.getMessageId(), message);
+            }
+        }
+        List<Message> ordered = new ArrayList<>(messageIds.size());
+        for (Integer messageId : messageIds) {
+            Message message = found.get(messageId);
+            if (message != null) {
+                ordered.add(message);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Clamp a requested page size to the configured bounds
+     * 
+     * @param limit requested page size, or null for the default
+     * @return page size between 1 and the configured maximum
+     */
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
 }
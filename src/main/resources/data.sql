@@ -1,3 +1,4 @@
+drop table if exists follow;
 drop table if exists message;
 drop table if exists account;
 create table account (
@@ -10,8 +11,21 @@ create table message (
     postedBy int,
     messageText varchar(255),
     timePostedEpoch bigint,
+    version int default 0 not null,
     foreign key (postedBy) references account(accountId)
 );
+create table follow (
+    followerId int not null,
+    followeeId int not null,
+    primary key (followerId, followeeId),
+    foreign key (followerId) references account(accountId),
+    foreign key (followeeId) references account(accountId)
+);
+-- serves per-author timelines, newest first, without sorting
+create index message_author_timeline_idx
+    on message (postedBy, timePostedEpoch desc, messageId desc);
+-- serves time-range queries over all messages, oldest first
+create index message_time_idx on message (timePostedEpoch, messageId);
 
 -- Starting test values with ids of 9999 to avoid test issues
 insert into account values (9999, 'testuser1', 'password');
@@ -19,7 +33,7 @@ insert into account values (9998, 'testuser2', 'password');
 insert into account values (9997, 'testuser3', 'password');
 insert into account values (9996, 'testuser4', 'password');
 
-insert into message values (9999, 9999,'test message 1',1669947792);
-insert into message values (9997, 9997,'test message 2',1669947792);
-insert into message values (9996, 9996,'test message 3',1669947792);
+insert into message values (9999, 9999,'test message 1',1669947792, 0);
+insert into message values (9997, 9997,'test message 2',1669947792, 0);
+insert into message values (9996, 9996,'test message 3',1669947792, 0);
 
@@ -0,0 +1,65 @@
+package com.example.perf;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Account;
+import com.example.exception.HashingUnavailableException;
+import com.example.service.AccountService;
+
+/**
+ * AccountService login verification against an embedded H2 database seeded
+ * with accountCount accounts whose passwords are PBKDF2 hashes, so every
+ * login goes through the bounded hashing executor. The iteration count is
+ * kept below the production default so seeding 100000 accounts stays quick;
+ * PasswordHasherBenchmark covers the cost of the hash itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountServiceBenchmark {
+    @Param({"1000", "100000"})
+    int accountCount;
+    @Param({"10000"})
+    int iterations;
+
+    ConfigurableApplicationContext context;
+    AccountService accountService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start(accountCount, 0,
+            "app.password.iterations=" + iterations);
+        accountService = context.getBean(AccountService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account verifyLogin() throws HashingUnavailableException {
+        int i = ThreadLocalRandom.current().nextInt(1, accountCount + 1);
+        return accountService.verifyLogin(
+            new Account("user" + i, "password" + i));
+    }
+}
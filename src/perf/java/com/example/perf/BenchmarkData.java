@@ -0,0 +1,113 @@
+package com.example.perf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.SocialMediaApp;
+import com.example.cache.AccountIndex;
+import com.example.security.PasswordHasher;
+
+/**
+ * Starts the application, with or without a web server, against the embedded
+ * H2 database and seeds it with a configurable number of accounts and messages.
+ *
+ * Account i (1-based) has username "user{i}" and password "password{i}",
+ * stored as a PBKDF2 hash at the configured app.password.iterations, so
+ * logins take the same hashing path as for registered accounts. Hashing is
+ * spread over all cores but still costs one full hash per account; lower
+ * the iteration count when seeding many accounts.
+ * Message i is posted by account ((i - 1) % accounts) + 1 at time
+ * BASE_EPOCH + i, so every account has an equal share of the messages.
+ */
+public final class BenchmarkData {
+    public static final long BASE_EPOCH = 1669947792L;
+    private static final int INSERT_BATCH = 1000;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Start a seeded application context without a web server
+     * 
+     * @param accounts number of accounts to create
+     * @param messages number of messages to create
+     * @param properties extra application properties, as key=value
+     * @return the running context; the caller must close it
+     */
+    public static ConfigurableApplicationContext start(int accounts,
+        int messages, String... properties) {
+        return start(WebApplicationType.NONE, accounts, messages, properties);
+    }
+
+    /**
+     * Start a seeded application context
+     * 
+     * @param webType SERVLET to also start the HTTP server
+     * @param accounts number of accounts to create
+     * @param messages number of messages to create
+     * @param properties extra application properties, as key=value; they
+     * take precedence over application.properties
+     * @return the running context; the caller must close it
+     */
+    public static ConfigurableApplicationContext start(
+        WebApplicationType webType, int accounts, int messages,
+        String... properties) {
+        // passed as command line arguments, since default properties would
+        // lose to the values in application.properties
+        ConfigurableApplicationContext context =
+            new SpringApplicationBuilder(SocialMediaApp.class)
+                .web(webType)
+                .properties("logging.level.root=WARN")
+                .run(Arrays.stream(properties)
+                    .map(property -> "--" + property)
+                    .toArray(String[]::new));
+        seed(context.getBean(JdbcTemplate.class),
+            context.getBean(PasswordHasher.class), accounts, messages);
+        context.getBean(AccountIndex.class).load();
+        return context;
+    }
+
+    /**
+     * Replace the rows from data.sql with the accounts and messages, using
+     * explicit IDs, and move the ID sequences past them so rows created
+     * during the benchmark do not collide with the seeded ones
+     */
+    private static void seed(JdbcTemplate jdbc, PasswordHasher hasher,
+        int accounts, int messages) {
+        jdbc.execute("delete from message");
+        jdbc.execute("delete from account");
+        String[] passwords = IntStream.rangeClosed(1, accounts).parallel()
+            .mapToObj(i -> hasher.hashNow("password" + i))
+            .toArray(String[]::new);
+        List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+        for (int i = 1; i <= accounts; i++) {
+            rows.add(new Object[] {i, "user" + i, passwords[i - 1]});
+            if (rows.size() == INSERT_BATCH || i == accounts) {
+                jdbc.batchUpdate("insert into account (accountId, username,"
+                    + " password) values (?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        for (int i = 1; i <= messages; i++) {
+            rows.add(new Object[] {i, ((i - 1) % accounts) + 1,
+                "benchmark message " + i, BASE_EPOCH + i});
+            if (rows.size() == INSERT_BATCH || i == messages) {
+                jdbc.batchUpdate("insert into message (messageId, postedBy,"
+                    + " messageText, timePostedEpoch) values (?, ?, ?, ?)",
+                    rows);
+                rows.clear();
+            }
+        }
+        jdbc.execute("alter sequence account_seq restart with "
+            + (accounts + 1));
+        jdbc.execute("alter sequence message_seq restart with "
+            + (messages + 1));
+    }
+}
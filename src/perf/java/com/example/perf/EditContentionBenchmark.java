@@ -0,0 +1,95 @@
+package com.example.perf;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Message;
+import com.example.exception.VersionConflictException;
+import com.example.service.MessageService;
+
+/**
+ * Edit throughput when many threads edit the same few messages at once.
+ * "unconditional" edits whatever version is current, last writer wins;
+ * "optimistic" reads the message, edits it only if still at the version
+ * read, and rereads and retries on a conflict, as a client honouring
+ * If-Match would. Rereads are mostly message cache hits, which carry the
+ * version like a database read does. With hotMessages=1 every thread contends for one row; the
+ * conflicts printed at the end of each trial show how many attempts were
+ * wasted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class EditContentionBenchmark {
+    private static final int ACCOUNTS = 100;
+
+    @Param({"unconditional", "optimistic"})
+    String mode;
+    @Param({"1", "64"})
+    int hotMessages;
+
+    ConfigurableApplicationContext context;
+    MessageService messageService;
+    final LongAdder conflicts = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start(ACCOUNTS, hotMessages);
+        messageService = context.getBean(MessageService.class);
+        conflicts.reset();
+        // read twice so the second read is a cache hit, which is what the
+        // optimistic loop sees from then on; without a version every edit
+        // would silently be unconditional
+        for (int i = 0; i < 2; i++) {
+            if (messageService.getMessageById(1).getVersion() == null) {
+                throw new IllegalStateException(
+                    "message read without its version");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%d version conflicts%n", conflicts.sum());
+        context.close();
+    }
+
+    @Benchmark
+    public int editMessage() throws VersionConflictException {
+        int messageId = ThreadLocalRandom.current().nextInt(1, hotMessages + 1);
+        if ("unconditional".equals(mode)) {
+            return messageService.editMessageWithId(
+                messageId, "benchmark edit", null);
+        }
+        while (true) {
+            Message message = messageService.getMessageById(messageId);
+            try {
+                return messageService.editMessageWithId(
+                    messageId, "benchmark edit", message.getVersion());
+            } catch (VersionConflictException e) {
+                conflicts.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.perf;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.entity.Message;
+import com.example.exception.IngestQueueFullException;
+import com.example.ingest.MessageIngestQueue;
+import com.example.service.MessageService;
+
+/**
+ * Posting throughput of MessageService.createMessage from many threads at
+ * once, with a transaction per message ("direct") against the write-behind
+ * queue with each durability setting. Async posts that find the queue full
+ * are retried, so its throughput is bounded by the writer rather than by
+ * how fast messages can be queued. The flushes counter printed at the end
+ * of each trial shows how many messages each group commit carried.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class IngestBenchmark {
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"direct", "sync", "async"})
+    String ingest;
+
+    ConfigurableApplicationContext context;
+    MessageService messageService;
+    MessageIngestQueue ingestQueue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "direct".equals(ingest)
+            ? BenchmarkData.start(ACCOUNTS, 0)
+            : BenchmarkData.start(ACCOUNTS, 0,
+                "app.ingest.mode=write-behind",
+                "app.ingest.durability=" + ingest);
+        messageService = context.getBean(MessageService.class);
+        ingestQueue = context.getBean(MessageIngestQueue.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%d messages written in %d flushes%n",
+            ingestQueue.getWrittenCount(), ingestQueue.getFlushCount());
+        context.close();
+    }
+
+    @Benchmark
+    public Message createMessage() {
+        Message message = new Message(
+            ThreadLocalRandom.current().nextInt(1, ACCOUNTS + 1),
+            "benchmark post", BenchmarkData.BASE_EPOCH);
+        while (true) {
+            try {
+                return messageService.createMessage(message);
+            } catch (IngestQueueFullException e) {
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.perf;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * HTTP load generator for the SocialMediaController endpoints.
+ *
+ * A fixed number of worker threads send requests back to back for a fixed
+ * duration. Each request is drawn from a weighted mix of operations, and its
+ * latency is recorded in a per-operation HdrHistogram. Requests during the
+ * warmup period are sent but not recorded. At the end, a report with
+ * throughput and p50/p99/p999/max latency per operation is printed and
+ * written as CSV, so runs can be compared.
+ *
+ * Options are given as key=value arguments:
+ * <ul>
+ * <li>baseUrl - server to test (default http://localhost:8080)</li>
+ * <li>embedded - start a seeded server in this JVM first (default true)</li>
+ * <li>accounts, messages - data volume for the embedded server, and the ID
+ * ranges requests are drawn from (defaults 1000 and 100000)</li>
+ * <li>concurrency - number of worker threads (default 32)</li>
+ * <li>warmup, duration - in seconds (defaults 5 and 30)</li>
+ * <li>mix - operation weights, e.g. getMessage=40,listByUser=30
+ * (default given by {@link Operation})</li>
+ * <li>report - CSV report path (default target/load-report.csv)</li>
+ * <li>any dotted key, e.g. app.threads.virtual=true - passed to the embedded
+ * server as an application property</li>
+ * </ul>
+ * An external server must be seeded the same way as {@link BenchmarkData}.
+ */
+public class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE_MICROS = 60_000_000L;
+
+    /**
+     * The operations that can appear in the mix, with their default weights
+     */
+    enum Operation {
+        REGISTER("register", 2),
+        LOGIN("login", 10),
+        POST_MESSAGE("postMessage", 10),
+        LIST_MESSAGES("listMessages", 8),
+        GET_MESSAGE("getMessage", 40),
+        LIST_BY_USER("listByUser", 30);
+
+        final String key;
+        final int defaultWeight;
+
+        Operation(String key, int defaultWeight) {
+            this.key = key;
+            this.defaultWeight = defaultWeight;
+        }
+
+        static Operation fromKey(String key) {
+            for (Operation op : values()) {
+                if (op.key.equals(key)) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation: " + key);
+        }
+    }
+
+    private final String baseUrl;
+    private final int accounts;
+    private final int messages;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<Operation, Integer> mix;
+    private final Path report;
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AtomicLong registrations = new AtomicLong();
+
+    LoadGenerator(Map<String, String> options) {
+        this.baseUrl = options.getOrDefault("baseUrl", "http://localhost:8080");
+        this.accounts = Integer.parseInt(
+            options.getOrDefault("accounts", "1000"));
+        this.messages = Integer.parseInt(
+            options.getOrDefault("messages", "100000"));
+        this.concurrency = Integer.parseInt(
+            options.getOrDefault("concurrency", "32"));
+        this.warmup = Duration.ofSeconds(Long.parseLong(
+            options.getOrDefault("warmup", "5")));
+        this.duration = Duration.ofSeconds(Long.parseLong(
+            options.getOrDefault("duration", "30")));
+        this.mix = parseMix(options.get("mix"));
+        this.report = Paths.get(
+            options.getOrDefault("report", "target/load-report.csv"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        LoadGenerator generator = new LoadGenerator(options);
+        ConfigurableApplicationContext context = null;
+        if (Boolean.parseBoolean(options.getOrDefault("embedded", "true"))) {
+            // dotted keys are application properties for the embedded server
+            List<String> properties = new ArrayList<>();
+            options.forEach((key, value) -> {
+                if (key.contains(".")) {
+                    properties.add(key + "=" + value);
+                }
+            });
+            context = BenchmarkData.start(WebApplicationType.SERVLET,
+                generator.accounts, generator.messages,
+                properties.toArray(new String[0]));
+        }
+        try {
+            generator.run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Run the load and write the report
+     */
+    void run() throws InterruptedException, IOException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        List<Worker> workers = new ArrayList<>(concurrency);
+        List<Thread> threads = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(measureFrom, stopAt);
+            Thread thread = new Thread(worker, "load-" + i);
+            workers.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        for (Worker worker : workers) {
+            worker.latencies.forEach((op, histogram) -> latencies
+                .computeIfAbsent(op, k -> newHistogram()).add(histogram));
+            worker.errors.forEach((op, count) -> errors.merge(op, count,
+                Long::sum));
+        }
+        writeReport(latencies, errors);
+    }
+
+    private void writeReport(Map<Operation, Histogram> latencies,
+        Map<Operation, Long> errors) throws IOException {
+        double seconds = duration.toNanos() / 1e9;
+        Histogram total = newHistogram();
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(report))) {
+            csv.println("operation,requests,errors,throughput_per_s,"
+                + "p50_ms,p99_ms,p999_ms,max_ms");
+            System.out.printf("%-14s %10s %8s %12s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s",
+                "p50 ms", "p99 ms", "p999 ms", "max ms");
+            for (Map.Entry<Operation, Histogram> entry
+                : latencies.entrySet()) {
+                total.add(entry.getValue());
+                printRow(csv, entry.getKey().key, entry.getValue(),
+                    errors.getOrDefault(entry.getKey(), 0L), seconds);
+            }
+            long totalErrors = errors.values().stream()
+                .mapToLong(Long::longValue).sum();
+            printRow(csv, "total", total, totalErrors, seconds);
+        }
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    private static void printRow(PrintWriter csv, String name,
+        Histogram histogram, long errors, double seconds) {
+        long count = histogram.getTotalCount();
+        double throughput = count / seconds;
+        double p50 = histogram.getValueAtPercentile(50) / 1000.0;
+        double p99 = histogram.getValueAtPercentile(99) / 1000.0;
+        double p999 = histogram.getValueAtPercentile(99.9) / 1000.0;
+        double max = histogram.getMaxValue() / 1000.0;
+        csv.printf("%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f%n",
+            name, count, errors, throughput, p50, p99, p999, max);
+        System.out.printf("%-14s %10d %8d %12.1f %9.3f %9.3f %9.3f %9.3f%n",
+            name, count, errors, throughput, p50, p99, p999, max);
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    }
+
+    private static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        if (spec == null || spec.isEmpty()) {
+            for (Operation op : Operation.values()) {
+                mix.put(op, op.defaultWeight);
+            }
+            return mix;
+        }
+        for (String part : spec.split(",")) {
+            String[] kv = part.split("=");
+            mix.put(Operation.fromKey(kv[0].trim()),
+                Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+
+    /**
+     * Build the request for one operation with randomized parameters
+     */
+    private HttpRequest request(Operation op) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int account = random.nextInt(1, accounts + 1);
+        switch (op) {
+            case REGISTER:
+                return post("/register", "{\"username\":\"load"
+                    + registrations.incrementAndGet() + "-" + random.nextInt()
+                    + "\",\"password\":\"password\"}");
+            case LOGIN:
+                return post("/login", "{\"username\":\"user" + account
+                    + "\",\"password\":\"password" + account + "\"}");
+            case POST_MESSAGE:
+                return post("/messages", "{\"postedBy\":" + account
+                    + ",\"messageText\":\"load test message\","
+                    + "\"timePostedEpoch\":" + System.currentTimeMillis() / 1000
+                    + "}");
+            case LIST_MESSAGES:
+                return get("/messages?limit=50");
+            case GET_MESSAGE:
+                return get("/messages/" + random.nextInt(1, messages + 1));
+            case LIST_BY_USER:
+                return get("/accounts/" + account + "/messages");
+            default:
+                throw new IllegalArgumentException(op.key);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder().uri(URI.create(baseUrl + path))
+            .build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder().uri(URI.create(baseUrl + path))
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .header("Content-Type", "application/json")
+            .build();
+    }
+
+    /**
+     * Sends requests back to back until the stop time, recording latencies
+     * into its own histograms so workers never contend
+     */
+    private class Worker implements Runnable {
+        final long measureFrom;
+        final long stopAt;
+        final Operation[] choices;
+        final Map<Operation, Histogram> latencies =
+            new EnumMap<>(Operation.class);
+        final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+        Worker(long measureFrom, long stopAt) {
+            this.measureFrom = measureFrom;
+            this.stopAt = stopAt;
+            List<Operation> weighted = new ArrayList<>();
+            mix.forEach((op, weight) -> {
+                for (int i = 0; i < weight; i++) {
+                    weighted.add(op);
+                }
+            });
+            this.choices = weighted.toArray(new Operation[0]);
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now = System.nanoTime();
+            while (now < stopAt) {
+                Operation op = choices[random.nextInt(choices.length)];
+                HttpRequest request = request(op);
+                boolean ok;
+                try {
+                    HttpResponse<Void> response = client.send(request,
+                        HttpResponse.BodyHandlers.discarding());
+                    ok = response.statusCode() / 100 == 2;
+                } catch (IOException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = System.nanoTime();
+                if (now >= measureFrom) {
+                    latencies.computeIfAbsent(op, k -> newHistogram())
+                        .recordValue(Math.min((end - now) / 1000,
+                            HIGHEST_TRACKABLE_MICROS));
+                    if (!ok) {
+                        errors.merge(op, 1L, Long::sum);
+                    }
+                }
+                now = end;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.perf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.example.exception.IngestQueueFullException;
+import com.example.exception.InvalidCursorException;
+import com.example.service.MessageService;
+
+/**
+ * MessageService hot paths against an embedded H2 database seeded with
+ * messageCount messages spread over accountCount accounts. Comparing runs
+ * with different messageCount values shows which paths scale with the table
+ * size and which stay flat; timelinePage should stay flat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageServiceBenchmark {
+    @Param({"1000"})
+    int accountCount;
+    @Param({"10000", "100000"})
+    int messageCount;
+
+    ConfigurableApplicationContext context;
+    MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkData.start(accountCount, messageCount);
+        messageService = context.getBean(MessageService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Message createMessage() throws IngestQueueFullException {
+        return messageService.createMessage(new Message(randomAccount(),
+            "benchmark post", BenchmarkData.BASE_EPOCH));
+    }
+
+    @Benchmark
+    public Message getMessageById() {
+        return messageService.getMessageById(
+            ThreadLocalRandom.current().nextInt(1, messageCount + 1));
+    }
+
+    @Benchmark
+    public List<Message> getAllMessagesByUser() {
+        return messageService.getAllMessagesByUser(randomAccount());
+    }
+
+    @Benchmark
+    public MessagePage timelinePage() throws InvalidCursorException {
+        return messageService.getMessagePageByUser(randomAccount(), null, 20);
+    }
+
+    private int randomAccount() {
+        return ThreadLocalRandom.current().nextInt(1, accountCount + 1);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.perf;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.security.PasswordHasher;
+
+/**
+ * Login password checks per second on a single core at different PBKDF2
+ * iteration counts. Multiply by the hashing executor's thread count for the
+ * expected login throughput ceiling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    @Param({"100000", "310000", "600000"})
+    int iterations;
+
+    PasswordHasher hasher;
+    String stored;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hasher = new PasswordHasher(iterations, 1, 16, Duration.ofSeconds(30));
+        stored = hasher.hashNow("password1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hasher.getExecutor().shutdownNow();
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.matchesNow("password1", stored);
+    }
+}
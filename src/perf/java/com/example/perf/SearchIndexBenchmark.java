@@ -0,0 +1,76 @@
+package com.example.perf;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.search.MessageSearchIndex;
+
+/**
+ * Search latency of MessageSearchIndex at different index sizes, without
+ * Spring. Messages are eight words drawn from a Zipf-like vocabulary, so a
+ * few words are very common and most are rare, roughly like real text.
+ * Queries pair a common word with a rare one, and a rare word alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SearchIndexBenchmark {
+    private static final int VOCABULARY = 50_000;
+    private static final int WORDS_PER_MESSAGE = 8;
+
+    @Param({"100000", "1000000"})
+    int messageCount;
+
+    MessageSearchIndex index;
+    int query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new MessageSearchIndex(null, null);
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int id = 1; id <= messageCount; id++) {
+            text.setLength(0);
+            for (int w = 0; w < WORDS_PER_MESSAGE; w++) {
+                text.append(word(random)).append(' ');
+            }
+            index.add(id, 0, text.toString());
+        }
+    }
+
+    /**
+     * Draw word ranks with probability roughly proportional to 1 / rank
+     */
+    private static String word(Random random) {
+        int rank = (int) Math.pow(VOCABULARY, random.nextDouble());
+        return "w" + rank;
+    }
+
+    @Benchmark
+    public MessageSearchIndex.Hits commonAndRareWord() {
+        query = (query + 1) % 1000;
+        return index.search("w1 w" + (1000 + query), 0, 20);
+    }
+
+    @Benchmark
+    public MessageSearchIndex.Hits rareWord() {
+        query = (query + 1) % 1000;
+        return index.search("w" + (5000 + query), 0, 20);
+    }
+}
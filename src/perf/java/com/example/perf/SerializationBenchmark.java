@@ -0,0 +1,73 @@
+package com.example.perf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.entity.Account;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of the entities as returned by the controller.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    ObjectMapper objectMapper;
+    Message message;
+    Account account;
+    List<Message> page;
+    byte[] messageJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        message = new Message(12345, 678, "a typical message of moderate"
+            + " length, long enough to be realistic", BenchmarkData.BASE_EPOCH);
+        account = new Account(678, "someuser", "somepassword");
+        page = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            page.add(new Message(i, 678, "message " + i,
+                BenchmarkData.BASE_EPOCH + i));
+        }
+        messageJson = objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] writeMessage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] writeAccount() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public byte[] writeMessagePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Message readMessage() throws IOException {
+        return objectMapper.readValue(messageJson, Message.class);
+    }
+}
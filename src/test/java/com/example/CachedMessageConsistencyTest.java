@@ -0,0 +1,156 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.cache.MessageCache;
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+import com.example.service.MessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CachedMessageConsistencyTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    private Message getMessage() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        return objectMapper.readValue(
+                webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString()).body(), Message.class);
+    }
+
+    /**
+     * Interleaving a cache miss for message 9999 with an edit by hand: the reader takes its read token and
+     * loads the row, the edit commits and caches the edited row, and only then does the reader put what it
+     * loaded; then putting the loaded row again as if it were a write that reached the cache late
+     *
+     * Expected Response:
+     *  An older version never replaces a newer one, so GET localhost:8080/messages/9999 has the edited text
+     */
+    @Test
+    public void readRacingEditDoesNotCacheStaleMessage() throws Exception {
+        MessageCache messageCache = app.getBean(MessageCache.class);
+        MessageRepository messageRepository = app.getBean(MessageRepository.class);
+        MessageService messageService = app.getBean(MessageService.class);
+
+        long readToken = messageCache.readToken();
+        Message loaded = messageRepository.findById(9999).orElseThrow();
+        Assertions.assertEquals(1, messageService.editMessageWithId(9999, "edited", null));
+        messageCache.put(loaded, readToken);
+        Assertions.assertEquals("edited", messageCache.get(9999).getMessageText());
+
+        messageCache.put(loaded);
+        Message message = getMessage();
+        Assertions.assertEquals("edited", message.getMessageText());
+        Assertions.assertEquals(Integer.valueOf(1), message.getVersion());
+    }
+
+    /**
+     * Interleaving a cache miss for message 9999 with a delete by hand: the reader takes its read token and
+     * loads the row, the delete commits and invalidates the cache, and only then does the reader put what it
+     * loaded; then putting a newer version of the row as if an edit that committed before the delete reached
+     * the cache late
+     *
+     * Expected Response:
+     *  Neither put brings the deleted message back into the cache
+     */
+    @Test
+    public void writesRacingDeleteDoNotCacheDeletedMessage() throws Exception {
+        MessageCache messageCache = app.getBean(MessageCache.class);
+        MessageRepository messageRepository = app.getBean(MessageRepository.class);
+        MessageService messageService = app.getBean(MessageService.class);
+
+        long readToken = messageCache.readToken();
+        Message loaded = messageRepository.findById(9999).orElseThrow();
+        Assertions.assertEquals(1, messageService.deleteMessageWithId(9999));
+        messageCache.put(loaded, readToken);
+        Assertions.assertNull(messageCache.get(9999), "Expected the stale read to be dropped");
+
+        loaded.setVersion(loaded.getVersion() + 1);
+        messageCache.put(loaded);
+        Assertions.assertNull(messageCache.get(9999), "Expected the late edit to be dropped");
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9999 repeatedly while other clients keep sending
+     * GET localhost:8080/messages/9999, so reads that miss the cache race the edits, then reading it once
+     * the edits are done
+     *
+     * Expected Response:
+     *  Status Code: 200 for every edit
+     *  Response Body: the final read has the last edit's text and version, not a row read before it
+     */
+    @Test
+    public void readsDuringEditsDoNotCacheStaleMessage() throws Exception {
+        int edits = 100;
+        AtomicBoolean editing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> reads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            reads.add(readers.submit(() -> {
+                while (editing.get()) {
+                    getMessage();
+                }
+                return null;
+            }));
+        }
+        for (int i = 1; i <= edits; i++) {
+            HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages/9999"))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edit " + i + "\"}"))
+                    .header("Content-Type", "application/json")
+                    .build();
+            Assertions.assertEquals(200,
+                    webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+        editing.set(false);
+        for (Future<?> read : reads) {
+            read.get(10, TimeUnit.SECONDS);
+        }
+        readers.shutdown();
+
+        Message message = getMessage();
+        Assertions.assertEquals("edit " + edits, message.getMessageText());
+        Assertions.assertEquals(Integer.valueOf(edits), message.getVersion());
+    }
+}
@@ -0,0 +1,178 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ConditionalGetTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path, String etag) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path));
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessage(int postedBy) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":" + postedBy + ",\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/9999 with the ETag of the previous response,
+     * before and after editing the message
+     *
+     * Expected Response:
+     *  Status Code: 304 with an empty body while the message is unchanged, then 200 with a new ETag
+     */
+    @Test
+    public void getMessageByIdIfNoneMatch() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages/9999", null);
+        Assertions.assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(etag);
+
+        HttpResponse<String> unchanged = get("/messages/9999", etag);
+        Assertions.assertEquals(304, unchanged.statusCode());
+        Assertions.assertTrue(unchanged.body().isEmpty(), "Expected Empty Result, but Result was not Empty");
+
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> changed = get("/messages/9999", etag);
+        Assertions.assertEquals(200, changed.statusCode());
+        Assertions.assertTrue(changed.body().contains("edited"));
+        Assertions.assertNotEquals(etag, changed.headers().firstValue("ETag").orElse(null));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/9999 twice, so the second is served from the
+     * message cache, then again with the ETag each of them gave
+     *
+     * Expected Response:
+     *  Status Code: 200 with the same version based ETag from both reads, then 304
+     */
+    @Test
+    public void getMessageByIdETagStableAcrossCache() throws IOException, InterruptedException {
+        HttpResponse<String> miss = get("/messages/9999", null);
+        HttpResponse<String> hit = get("/messages/9999", null);
+        Assertions.assertEquals(200, miss.statusCode());
+        Assertions.assertEquals(200, hit.statusCode());
+        String etag = miss.headers().firstValue("ETag").orElse(null);
+        Assertions.assertEquals("\"9999-0\"", etag);
+        Assertions.assertEquals(etag, hit.headers().firstValue("ETag").orElse(null));
+
+        HttpResponse<String> unchanged = get("/messages/9999", etag);
+        Assertions.assertEquals(304, unchanged.statusCode());
+        Assertions.assertTrue(unchanged.body().isEmpty(), "Expected Empty Result, but Result was not Empty");
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/9999/messages with the ETag of the previous
+     * response, after another user posts and then after 9999 posts
+     *
+     * Expected Response:
+     *  Status Code: 304 after the other user's post, then 200 once 9999 has posted
+     */
+    @Test
+    public void getMessagesByUserIfNoneMatch() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/accounts/9999/messages", null);
+        Assertions.assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(etag);
+
+        postMessage(9998);
+        Assertions.assertEquals(304, get("/accounts/9999/messages", etag).statusCode());
+
+        postMessage(9999);
+        HttpResponse<String> changed = get("/accounts/9999/messages", etag);
+        Assertions.assertEquals(200, changed.statusCode());
+        Assertions.assertNotEquals(etag, changed.headers().firstValue("ETag").orElse(null));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/9999/messages with the full list's ETag, but with
+     * an invalid cursor, and with an inverted time range
+     *
+     * Expected Response:
+     *  Status Code: 400 for both, not 304
+     */
+    @Test
+    public void getMessagesByUserInvalidQueryIfNoneMatch() throws IOException, InterruptedException {
+        String etag = get("/accounts/9999/messages", null).headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(etag);
+
+        int status = get("/accounts/9999/messages?cursor=not-a-cursor", etag).statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+        status = get("/accounts/9999/messages?since=1669947793&until=1669947792", etag).statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/9999/messages?limit=1 and with a time range,
+     * each with the full list's ETag, then each again with its own ETag
+     *
+     * Expected Response:
+     *  Status Code: 200 with a tag of its own the first time, since the full list's tag does not match
+     *  another query, then 304
+     */
+    @Test
+    public void getMessagesByUserETagVariesByQuery() throws IOException, InterruptedException {
+        String etag = get("/accounts/9999/messages", null).headers().firstValue("ETag").orElse(null);
+        Assertions.assertNotNull(etag);
+
+        for (String query : new String[] {"?limit=1", "?since=1669947792&until=1669947793"}) {
+            HttpResponse<String> page = get("/accounts/9999/messages" + query, etag);
+            Assertions.assertEquals(200, page.statusCode());
+            String pageETag = page.headers().firstValue("ETag").orElse(null);
+            Assertions.assertNotNull(pageETag);
+            Assertions.assertNotEquals(etag, pageETag);
+            Assertions.assertEquals(304, get("/accounts/9999/messages" + query, pageETag).statusCode());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageBatchResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessageBatchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with one valid message, one with blank text
+     * and one from a user that does not exist
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: per-message results with status 200 and the created message for the valid one, 400 otherwise
+     */
+    @Test
+    public void createMessageBatchMixedResults() throws IOException, InterruptedException {
+        String json = "[{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":9999,\"messageText\": \"\",\"timePostedEpoch\": 1669947792},"
+                + "{\"postedBy\":5050,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}]";
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<MessageBatchResult> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<MessageBatchResult>>(){});
+        Assertions.assertEquals(3, actualResult.size());
+        Assertions.assertEquals(200, actualResult.get(0).getStatus());
+        Assertions.assertNotNull(actualResult.get(0).getMessage().getMessageId());
+        Assertions.assertEquals("hello message", actualResult.get(0).getMessage().getMessageText());
+        Assertions.assertEquals(400, actualResult.get(1).getStatus());
+        Assertions.assertEquals(400, actualResult.get(2).getStatus());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with an empty array
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void createMessageBatchEmpty() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("[]"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class HomeTimelineTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void postMessage(int postedBy, String text) throws IOException, InterruptedException {
+        String json = "{\"postedBy\":" + postedBy + ",\"messageText\":\"" + text + "\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Following account 9998, then sending http requests to GET localhost:8080/accounts/9999/timeline?limit=1
+     * after 9998 and the unfollowed 9997 post messages, following the cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: 9998's messages only, newest first, one per page
+     */
+    @Test
+    public void timelineShowsFollowedAccountsNewestFirst() throws IOException, InterruptedException {
+        HttpResponse<String> follow = send("PUT", "/accounts/9999/following/9998");
+        Assertions.assertEquals(200, follow.statusCode());
+        Assertions.assertEquals("1", follow.body());
+
+        MessagePage empty = objectMapper.readValue(send("GET", "/accounts/9999/timeline").body(),
+                MessagePage.class);
+        Assertions.assertTrue(empty.getMessages().isEmpty());
+
+        postMessage(9998, "first");
+        postMessage(9998, "second");
+        postMessage(9997, "not followed");
+
+        HttpResponse<String> first = send("GET", "/accounts/9999/timeline?limit=1");
+        Assertions.assertEquals(200, first.statusCode());
+        MessagePage firstPage = objectMapper.readValue(first.body(), MessagePage.class);
+        Assertions.assertEquals(1, firstPage.getMessages().size());
+        Assertions.assertEquals("second", firstPage.getMessages().get(0).getMessageText());
+        Assertions.assertNotNull(firstPage.getNextCursor());
+
+        MessagePage secondPage = objectMapper.readValue(send("GET", "/accounts/9999/timeline?limit=1&cursor="
+                + firstPage.getNextCursor()).body(), MessagePage.class);
+        Assertions.assertEquals(1, secondPage.getMessages().size());
+        Assertions.assertEquals("first", secondPage.getMessages().get(0).getMessageText());
+        Assertions.assertNull(secondPage.getNextCursor());
+    }
+
+    /**
+     * Following account 9997, which already has a message, then unfollowing it twice
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the timeline holds 9997's message while followed and is empty after; the first unfollow
+     *  returns 1 and the second an empty body
+     */
+    @Test
+    public void unfollowRemovesMessagesFromTimeline() throws IOException, InterruptedException {
+        send("PUT", "/accounts/9999/following/9997");
+        MessagePage followed = objectMapper.readValue(send("GET", "/accounts/9999/timeline").body(),
+                MessagePage.class);
+        Assertions.assertEquals(1, followed.getMessages().size());
+        Assertions.assertEquals("test message 2", followed.getMessages().get(0).getMessageText());
+
+        HttpResponse<String> unfollow = send("DELETE", "/accounts/9999/following/9997");
+        Assertions.assertEquals(200, unfollow.statusCode());
+        Assertions.assertEquals("1", unfollow.body());
+        MessagePage unfollowed = objectMapper.readValue(send("GET", "/accounts/9999/timeline").body(),
+                MessagePage.class);
+        Assertions.assertTrue(unfollowed.getMessages().isEmpty());
+
+        HttpResponse<String> again = send("DELETE", "/accounts/9999/following/9997");
+        Assertions.assertEquals(200, again.statusCode());
+        Assertions.assertTrue(again.body().isEmpty(), "Expected Empty Result, but Result was not Empty");
+    }
+
+    /**
+     * Sending http requests to PUT localhost:8080/accounts/9999/following/9999 and
+     * PUT localhost:8080/accounts/9999/following/1234 (account does not exist)
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void followSelfOrMissingAccount() throws IOException, InterruptedException {
+        int self = send("PUT", "/accounts/9999/following/9999").statusCode();
+        Assertions.assertEquals(400, self, "Expected Status Code 400 - Actual Code was: " + self);
+        int missing = send("PUT", "/accounts/9999/following/1234").statusCode();
+        Assertions.assertEquals(400, missing, "Expected Status Code 400 - Actual Code was: " + missing);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1234/timeline (account does not exist)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: empty
+     */
+    @Test
+    public void timelineForMissingAccount() throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/accounts/1234/timeline");
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertTrue(response.body().isEmpty(), "Expected Empty Result, but Result was not Empty");
+    }
+}
@@ -0,0 +1,65 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class MetricsEndpointTest {
+    ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999 and then GET localhost:8080/actuator/prometheus
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text including the service timer for getMessageById and the connection pool gauges
+     */
+    @Test
+    public void prometheusScrapeIncludesServiceTimings() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        HttpRequest scrapeRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/actuator/prometheus"))
+                .build();
+        HttpResponse<String> response = webClient.send(scrapeRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        String body = response.body();
+        Assertions.assertTrue(body.contains("app_service_seconds_count{class=\"MessageService\","
+                + "exception=\"none\",method=\"getMessageById\",outcome=\"success\",}"), body);
+        Assertions.assertTrue(body.contains("hikaricp_connections_active"));
+        Assertions.assertTrue(body.contains("hibernate_"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class OptimisticEditTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    /**
+     * GET localhost:8080/messages/9999 twice, so the second response comes from the message cache, and
+     * return that one
+     */
+    private HttpResponse<String> getTwice() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        return webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> patch(String json, String ifMatch) throws IOException, InterruptedException {
+        return patch(9999, json, ifMatch);
+    }
+
+    private HttpResponse<String> patch(int messageId, String json, String ifMatch)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json");
+        if (ifMatch != null) {
+            request.header("If-Match", ifMatch);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9999 with If-Match set to the ETag from a
+     * cached GET localhost:8080/messages/9999, twice
+     *
+     * Expected Response:
+     *  Status Code: 200 for the first edit, then 412 since the tag is stale, and the message keeps the
+     *  first edit
+     */
+    @Test
+    public void patchMessageIfMatch() throws IOException, InterruptedException {
+        String etag = getTwice().headers().firstValue("ETag").orElse(null);
+        Assertions.assertEquals("\"9999-0\"", etag);
+
+        HttpResponse<String> first = patch("{\"messageText\":\"first edit\"}", etag);
+        Assertions.assertEquals(200, first.statusCode());
+        Assertions.assertEquals("1", first.body());
+
+        HttpResponse<String> second = patch("{\"messageText\":\"second edit\"}", etag);
+        int status = second.statusCode();
+        Assertions.assertEquals(412, status, "Expected Status Code 412 - Actual Code was: " + status);
+
+        Message message = objectMapper.readValue(getTwice().body(), Message.class);
+        Assertions.assertEquals("first edit", message.getMessageText());
+        Assertions.assertEquals(Integer.valueOf(1), message.getVersion());
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9999 with the version from a cached GET
+     * localhost:8080/messages/9999 in the body, twice, then with no version
+     *
+     * Expected Response:
+     *  Status Code: 200, then 409 since the message is now at version 1, then 200 for the unconditional edit
+     */
+    @Test
+    public void patchMessageWithStaleVersion() throws IOException, InterruptedException {
+        Integer version = objectMapper.readValue(getTwice().body(), Message.class).getVersion();
+        Assertions.assertEquals(Integer.valueOf(0), version);
+        String json = "{\"messageText\":\"first edit\",\"version\":" + version + "}";
+        Assertions.assertEquals(200, patch(json, null).statusCode());
+
+        HttpResponse<String> stale = patch(json, null);
+        int status = stale.statusCode();
+        Assertions.assertEquals(409, status, "Expected Status Code 409 - Actual Code was: " + status);
+
+        Assertions.assertEquals(200, patch("{\"messageText\":\"third edit\"}", null).statusCode());
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9999 and localhost:8080/messages/1234, which
+     * does not exist, with If-Match: *
+     *
+     * Expected Response:
+     *  Status Code: 200 for the existing message, 412 for the missing one
+     */
+    @Test
+    public void patchMessageIfMatchAny() throws IOException, InterruptedException {
+        Assertions.assertEquals(200, patch("{\"messageText\":\"any edit\"}", "*").statusCode());
+        Assertions.assertEquals("any edit", objectMapper.readValue(getTwice().body(), Message.class).getMessageText());
+        int status = patch(1234, "{\"messageText\":\"any edit\"}", "*").statusCode();
+        Assertions.assertEquals(412, status, "Expected Status Code 412 - Actual Code was: " + status);
+        status = patch(1234, "{\"messageText\":\"any edit\"}", "\"1234-0\"").statusCode();
+        Assertions.assertEquals(412, status, "Expected Status Code 412 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending http requests to PATCH localhost:8080/messages/9999 with If-Match lists: one naming a stale
+     * tag and the current one, then lists whose only current tag is weak or belongs to another message
+     *
+     * Expected Response:
+     *  Status Code: 200 for the first list, since one strong tag matches, then 412 for the others
+     */
+    @Test
+    public void patchMessageIfMatchList() throws IOException, InterruptedException {
+        HttpResponse<String> first = patch("{\"messageText\":\"first edit\"}", "\"9999-7\", \"9999-0\"");
+        Assertions.assertEquals(200, first.statusCode());
+
+        int status = patch("{\"messageText\":\"second edit\"}", "W/\"9999-1\"").statusCode();
+        Assertions.assertEquals(412, status, "Expected Status Code 412 - Actual Code was: " + status);
+        status = patch("{\"messageText\":\"second edit\"}", "\"9997-1\", W/\"9999-1\"").statusCode();
+        Assertions.assertEquals(412, status, "Expected Status Code 412 - Actual Code was: " + status);
+
+        Message message = objectMapper.readValue(getTwice().body(), Message.class);
+        Assertions.assertEquals("first edit", message.getMessageText());
+        Assertions.assertEquals(Integer.valueOf(1), message.getVersion());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ReactiveMessagePageTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app with the reactive profile, and create a new
+     * webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.profiles.active=reactive"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message, streamed as one JSON array
+     */
+    @Test
+    public void getAllMessagesStreamed() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages");
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> actualResult = objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+        Assertions.assertEquals(3, actualResult.size(), "Actual=" + actualResult);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages accepting application/x-ndjson
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the account's only message on one line
+     */
+    @Test
+    public void getAllMessagesByUserAsNdjson() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages"))
+                .header("Accept", "application/x-ndjson")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        String[] lines = response.body().trim().split("\n");
+        Assertions.assertEquals(1, lines.length, "Actual=" + response.body());
+        Assertions.assertEquals(new Message(9999, 9999, "test message 1", 1669947792L),
+                objectMapper.readValue(lines[0], Message.class));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?limit=2, then following the returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the first two messages with a next cursor, then the last message with no next cursor
+     */
+    @Test
+    public void getMessagePagesFollowingCursor() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages?limit=2");
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult.getMessages());
+        Assertions.assertNotNull(actualResult.getNextCursor(), "Expected a cursor for the next page");
+
+        response = get("/messages?limit=2&cursor=" + actualResult.getNextCursor());
+        status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        actualResult = objectMapper.readValue(response.body(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult.getMessages());
+        Assertions.assertNull(actualResult.getNextCursor(), "Expected no cursor on the last page");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?cursor=not-a-cursor
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagePageInvalidCursor() throws IOException, InterruptedException {
+        int status = get("/messages?cursor=not-a-cursor").statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?limit=1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a page holding the account's only message
+     */
+    @Test
+    public void getMessagePageByUser() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/accounts/9999/messages?limit=1");
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult.getMessages());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?cursor=not-a-cursor
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagePageByUserInvalidCursor() throws IOException, InterruptedException {
+        int status = get("/accounts/9999/messages?cursor=not-a-cursor").statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?since=1669947793&until=1669947792&limit=10
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagePageInvertedTimeRange() throws IOException, InterruptedException {
+        int status = get("/messages?since=1669947793&until=1669947792&limit=10").statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.AccountStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveAccountStatsTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> getStats(int accountId) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/" + accountId + "/stats"))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/9999/stats around posting and deleting messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a message count of 1 for the seeded message, 2 after posting, 1 after deleting
+     */
+    @Test
+    public void messageCountFollowsCreateAndDelete() throws IOException, InterruptedException {
+        HttpResponse<String> initial = getStats(9999);
+        Assertions.assertEquals(200, initial.statusCode());
+        Assertions.assertEquals(1, objectMapper.readValue(initial.body(), AccountStats.class).getMessageCount());
+
+        String json = "{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(2, objectMapper.readValue(getStats(9999).body(), AccountStats.class)
+                .getMessageCount());
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(1, objectMapper.readValue(getStats(9999).body(), AccountStats.class)
+                .getMessageCount());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1234/stats (account does not exist)
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: empty
+     */
+    @Test
+    public void statsForMissingAccount() throws IOException, InterruptedException {
+        HttpResponse<String> response = getStats(1234);
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertTrue(response.body().isEmpty(), "Expected Empty Result, but Result was not Empty");
+    }
+}
@@ -0,0 +1,97 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessagePageTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?limit=2, then following the returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the first two messages with a next cursor, then the last message with no next cursor
+     */
+    @Test
+    public void getMessagePagesFollowingCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=2"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9996, 9996, "test message 3", 1669947792L));
+        expectedResult.add(new Message(9997, 9997, "test message 2", 1669947792L));
+        MessagePage actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult.getMessages());
+        Assertions.assertNotNull(actualResult.getNextCursor(), "Expected a cursor for the next page");
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?limit=2&cursor=" + actualResult.getNextCursor()))
+                .build();
+        response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult.getMessages());
+        Assertions.assertNull(actualResult.getNextCursor(), "Expected no cursor on the last page");
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?cursor=garbage
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagePageInvalidCursor() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages?cursor=not-a-cursor"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessageTimelineForUserTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * After posting two newer messages for user 9999, sending an http request to
+     * GET localhost:8080/accounts/9999/messages?limit=2 and then following the returned cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the two newest messages, newest first, then the oldest message with no next cursor
+     */
+    @Test
+    public void getTimelinePagesNewestFirst() throws IOException, InterruptedException {
+        Message newer = postMessage("{\"postedBy\":9999,\"messageText\": \"newer\",\"timePostedEpoch\": 1669947793}");
+        Message newest = postMessage("{\"postedBy\":9999,\"messageText\": \"newest\",\"timePostedEpoch\": 1669947794}");
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=2"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(newest);
+        expectedResult.add(newer);
+        MessagePage actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult.getMessages());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=2&cursor=" + actualResult.getNextCursor()))
+                .build();
+        response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        actualResult = objectMapper.readValue(response.body().toString(), MessagePage.class);
+        Assertions.assertEquals(expectedResult, actualResult.getMessages(), "Expected="+expectedResult + ", Actual="+actualResult.getMessages());
+        Assertions.assertNull(actualResult.getNextCursor(), "Expected no cursor on the last page");
+    }
+
+    /**
+     * After posting three messages without a posting time for user 9999, sending http requests to
+     * GET localhost:8080/accounts/9999/messages?limit=1 and following the returned cursors
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the timed message first, then the untimed messages newest first, one per page
+     *  with none skipped
+     */
+    @Test
+    public void getTimelinePagesAcrossUntimedMessages() throws IOException, InterruptedException {
+        Message first = postMessage("{\"postedBy\":9999,\"messageText\": \"untimed 1\"}");
+        Message second = postMessage("{\"postedBy\":9999,\"messageText\": \"untimed 2\"}");
+        Message third = postMessage("{\"postedBy\":9999,\"messageText\": \"untimed 3\"}");
+        Assertions.assertNull(first.getTimePostedEpoch());
+
+        List<Message> expectedResult = new ArrayList<Message>();
+        expectedResult.add(new Message(9999, 9999, "test message 1", 1669947792L));
+        expectedResult.add(third);
+        expectedResult.add(second);
+        expectedResult.add(first);
+        List<Message> actualResult = new ArrayList<Message>();
+        String cursor = null;
+        do {
+            String query = "?limit=1" + (cursor == null ? "" : "&cursor=" + cursor);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/accounts/9999/messages" + query))
+                    .build();
+            HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+            MessagePage page = objectMapper.readValue(response.body().toString(), MessagePage.class);
+            actualResult.addAll(page.getMessages());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    private Message postMessage(String json) throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body().toString(), Message.class);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessagePage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessagesInTimeRangeTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, create a new webClient and ObjectMapper
+     * for interacting locally on the web, and post messages at times 1000, 2000 and 3000.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws IOException, InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+        for (int time = 1000; time <= 3000; time += 1000) {
+            String json = "{\"postedBy\":9999,\"messageText\":\"at " + time + "\",\"timePostedEpoch\":" + time + "}";
+            HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/messages"))
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .header("Content-Type", "application/json")
+                    .build();
+            webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages?since=1000&until=3000&limit=1, following the cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the messages at 1000 and then 2000, one per page; 3000 is excluded
+     */
+    @Test
+    public void getMessagesInTimeRangeByPage() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages?since=1000&until=3000&limit=1");
+        Assertions.assertEquals(200, first.statusCode());
+        MessagePage firstPage = objectMapper.readValue(first.body(), MessagePage.class);
+        Assertions.assertEquals(1, firstPage.getMessages().size());
+        Assertions.assertEquals("at 1000", firstPage.getMessages().get(0).getMessageText());
+        Assertions.assertNotNull(firstPage.getNextCursor());
+
+        HttpResponse<String> second = get("/messages?since=1000&until=3000&limit=1&cursor="
+                + firstPage.getNextCursor());
+        Assertions.assertEquals(200, second.statusCode());
+        MessagePage secondPage = objectMapper.readValue(second.body(), MessagePage.class);
+        Assertions.assertEquals(1, secondPage.getMessages().size());
+        Assertions.assertEquals("at 2000", secondPage.getMessages().get(0).getMessageText());
+        Assertions.assertNull(secondPage.getNextCursor());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/9999/messages?since=2000
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the user's messages from 2000 on, oldest first, including the seeded message
+     */
+    @Test
+    public void getUserMessagesSince() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/accounts/9999/messages?since=2000");
+        Assertions.assertEquals(200, response.statusCode());
+        MessagePage page = objectMapper.readValue(response.body(), MessagePage.class);
+        Assertions.assertEquals(3, page.getMessages().size());
+        Assertions.assertEquals("at 2000", page.getMessages().get(0).getMessageText());
+        Assertions.assertEquals("at 3000", page.getMessages().get(1).getMessageText());
+        Assertions.assertEquals("test message 1", page.getMessages().get(2).getMessageText());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?since=3000&until=1000
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void getMessagesInvertedRange() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/messages?since=3000&until=1000");
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+}
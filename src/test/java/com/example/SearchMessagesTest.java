@@ -0,0 +1,148 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.dto.MessageSearchResult;
+import com.example.entity.Message;
+import com.example.event.MessageEvent;
+import com.example.search.MessageSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SearchMessagesTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    private MessageSearchResult search(String query) throws IOException, InterruptedException {
+        HttpRequest searchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?q=" + query))
+                .build();
+        HttpResponse<String> response = webClient.send(searchRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        return objectMapper.readValue(response.body(), MessageSearchResult.class);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search?q=Message+2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the seeded message containing both words
+     */
+    @Test
+    public void searchMatchesAllWords() throws IOException, InterruptedException {
+        MessageSearchResult result = search("Message+2");
+        Assertions.assertEquals(1, result.getTotalHits());
+        Assertions.assertEquals(new Message(9997, 9997, "test message 2", 1669947792L),
+                result.getMessages().get(0));
+        Assertions.assertNull(result.getNextOffset());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, then GET localhost:8080/messages/search?q=hello
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the new message, indexed on creation
+     */
+    @Test
+    public void searchFindsNewMessage() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\":\"hello search\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> postResponse = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, postResponse.statusCode());
+
+        MessageSearchResult result = search("hello");
+        Assertions.assertEquals(1, result.getTotalHits());
+        Assertions.assertEquals("hello search", result.getMessages().get(0).getMessageText());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/search?q= with a blank query
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void searchBlankQuery() throws IOException, InterruptedException {
+        HttpRequest searchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?q=+"))
+                .build();
+        HttpResponse<String> response = webClient.send(searchRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/9997, then delivering the seeded row's UPDATED
+     * event late; then DELETE localhost:8080/messages/9997, then delivering the edit's UPDATED event late
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the late events neither bring back the old text nor the deleted message
+     */
+    @Test
+    public void searchIgnoresLateEvents() throws IOException, InterruptedException {
+        MessageSearchIndex searchIndex = app.getBean(MessageSearchIndex.class);
+        Message seeded = new Message(9997, 9997, "test message 2", 1669947792L);
+        seeded.setVersion(0);
+
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited words\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200,
+                webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        searchIndex.onMessageEvent(MessageEvent.updated(seeded));
+        Assertions.assertEquals(0, search("Message+2").getTotalHits());
+        Assertions.assertEquals(1, search("edited").getTotalHits());
+
+        HttpRequest deleteMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200,
+                webClient.send(deleteMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Message edited = new Message(9997, 9997, "edited words", 1669947792L);
+        edited.setVersion(1);
+        searchIndex.onMessageEvent(MessageEvent.updated(edited));
+        Assertions.assertEquals(0, search("edited").getTotalHits());
+    }
+}
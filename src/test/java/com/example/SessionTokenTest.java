@@ -0,0 +1,154 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SessionTokenTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    /**
+     * Log in as testuser1 and return the session token from the response
+     */
+    private String login() throws IOException, InterruptedException {
+        String json = "{\"username\":\"testuser1\",\"password\":\"password\"}";
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        return response.headers().firstValue("X-Auth-Token").orElseThrow();
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with a session token and no postedBy
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the new message, posted by the token's account
+     */
+    @Test
+    public void postMessageWithToken() throws IOException, InterruptedException {
+        String token = login();
+        String json = "{\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Message actualResult = objectMapper.readValue(response.body().toString(), Message.class);
+        Assertions.assertEquals(Integer.valueOf(9999), actualResult.getPostedBy());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with a session token for a different postedBy
+     *
+     * Expected Response:
+     *  Status Code: 403
+     */
+    @Test
+    public void postMessageForOtherAccount() throws IOException, InterruptedException {
+        String token = login();
+        String json = "{\"postedBy\":9998,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(403, status, "Expected Status Code 403 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with an unknown session token
+     *
+     * Expected Response:
+     *  Status Code: 401
+     */
+    @Test
+    public void postMessageWithInvalidToken() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer not-a-token")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(401, status, "Expected Status Code 401 - Actual Code was: " + status);
+    }
+
+    /**
+     * Sending an http request to PATCH localhost:8080/messages/9999 (posted by the token's account)
+     * and PATCH localhost:8080/messages/9997 (posted by another account) with a session token
+     *
+     * Expected Response:
+     *  Status Code: 200 for the own message, 400 for the other account's message
+     */
+    @Test
+    public void updateMessageWithToken() throws IOException, InterruptedException {
+        String token = login();
+        String json = "{\"messageText\": \"text changed\"}";
+        HttpRequest ownRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> ownResponse = webClient.send(ownRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, ownResponse.statusCode());
+        Assertions.assertEquals(Integer.valueOf(1), objectMapper.readValue(ownResponse.body(), Integer.class));
+
+        HttpRequest otherRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9997"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        HttpResponse<String> otherResponse = webClient.send(otherRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(400, otherResponse.statusCode());
+    }
+}
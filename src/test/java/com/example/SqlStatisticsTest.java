@@ -0,0 +1,95 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SqlStatisticsTest {
+    ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the app with SQL statistics headers and a budget of one
+     * statement per request, and create a new webClient for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {"--app.sql-stats.headers=true", "--app.sql-stats.budget=1",
+                "--app.sql-stats.fail-on-budget=true"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999 twice
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Headers: one statement fetching one row for the first request, none for the second (served from cache)
+     */
+    @Test
+    public void getMessageReportsStatements() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        HttpResponse<String> first = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, first.statusCode());
+        Assertions.assertEquals("1", first.headers().firstValue("X-Sql-Count").orElse(null));
+        Assertions.assertEquals("1", first.headers().firstValue("X-Sql-Rows").orElse(null));
+
+        HttpResponse<String> second = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, second.statusCode());
+        Assertions.assertEquals("0", second.headers().firstValue("X-Sql-Count").orElse(null));
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages, which fetches a sequence block and then inserts,
+     * then GET localhost:8080/messages/{id} for the new message
+     *
+     * Expected Response:
+     *  Status Code: 200, since the message has been committed by the time the budget is checked, with two
+     *  statements reported as exceeding the budget of one; the message can then be read
+     */
+    @Test
+    public void postMessageExceedsBudget() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Assertions.assertEquals("2", response.headers().firstValue("X-Sql-Budget-Exceeded").orElse(null));
+
+        Message posted = new ObjectMapper().readValue(response.body(), Message.class);
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + posted.getMessageId()))
+                .build();
+        HttpResponse<String> read = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, read.statusCode());
+        Assertions.assertEquals("hello message",
+                new ObjectMapper().readValue(read.body(), Message.class).getMessageText());
+    }
+}
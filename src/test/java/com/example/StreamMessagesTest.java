@@ -0,0 +1,113 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class StreamMessagesTest {
+    ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        SpringApplication.exit(app);
+    }
+
+    /**
+     * Read lines from an event stream until the next event with the given name, and return its data
+     */
+    private Message nextEvent(Iterator<String> lines, String name) throws IOException {
+        String event = null;
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("event:")) {
+                event = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:") && name.equals(event)) {
+                return objectMapper.readValue(line.substring("data:".length()), Message.class);
+            }
+        }
+        Assertions.fail("Stream ended before a " + name + " event");
+        return null;
+    }
+
+    /**
+     * Subscribing with GET localhost:8080/messages/stream, then posting, editing and deleting a message
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a created, an updated and a deleted event for the message, in that order, the updated
+     *  one carrying the whole edited message
+     */
+    @Test
+    public void streamDeliversMessageChanges() throws Exception {
+        HttpRequest streamRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream"))
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<Stream<String>> stream = webClient
+                .sendAsync(streamRequest, HttpResponse.BodyHandlers.ofLines())
+                .get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(200, stream.statusCode());
+        Iterator<String> lines = stream.body().iterator();
+
+        String json = "{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest deleteMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        webClient.send(deleteMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            Assertions.assertEquals(new Message(1, 9999, "hello message", 1669947792L),
+                    nextEvent(lines, "created"));
+            Assertions.assertEquals(new Message(1, 9999, "edited", 1669947792L),
+                    nextEvent(lines, "updated"));
+            Assertions.assertEquals(Integer.valueOf(1), nextEvent(lines, "deleted").getMessageId());
+        });
+        stream.body().close();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.config.VirtualThreadConfig;
+
+/**
+ * app.threads.virtual is a gated mode: the build targets Java 11, and the mode only starts on a Java 21 or
+ * later runtime. These tests report which mode the current runtime ends up in.
+ */
+public class VirtualThreadModeTest {
+    ApplicationContext app;
+    HttpClient webClient;
+
+    @BeforeEach
+    public void setUp() {
+        webClient = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        Thread.sleep(500);
+        if (app != null) {
+            SpringApplication.exit(app);
+        }
+    }
+
+    private int getMessage() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        return webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    /**
+     * Starting the app with the default settings, then sending an http request to GET
+     * localhost:8080/messages/9999
+     *
+     * Expected Response:
+     *  Status Code: 200, served by pooled platform threads
+     */
+    @Test
+    public void platformThreadsByDefault() throws IOException, InterruptedException {
+        app = SpringApplication.run(SocialMediaApp.class);
+        Thread.sleep(500);
+        Assertions.assertTrue(app.getBeansOfType(VirtualThreadConfig.class).isEmpty());
+        Assertions.assertEquals(200, getMessage());
+        System.out.println("app.threads.virtual=false: requests run on platform threads");
+    }
+
+    /**
+     * Starting the app with app.threads.virtual=true, then sending an http request to GET
+     * localhost:8080/messages/9999
+     *
+     * Expected Response:
+     *  On Java 21 or later, Status Code: 200, with the request executor creating virtual threads
+     *  On older runtimes, startup fails and names the Java version required
+     */
+    @Test
+    public void virtualThreadsWhenEnabled() throws Exception {
+        int feature = Runtime.version().feature();
+        if (feature < 21) {
+            RuntimeException e = Assertions.assertThrows(RuntimeException.class,
+                    () -> SpringApplication.run(SocialMediaApp.class, "--app.threads.virtual=true"));
+            Throwable cause = e;
+            while (cause != null && (cause.getMessage() == null || !cause.getMessage().contains("requires Java 21"))) {
+                cause = cause.getCause();
+            }
+            Assertions.assertNotNull(cause, "Expected startup to name the Java version required");
+            System.out.println("app.threads.virtual=true: unavailable on Java " + feature
+                    + ", startup refused");
+            return;
+        }
+        app = SpringApplication.run(SocialMediaApp.class, "--app.threads.virtual=true");
+        Thread.sleep(500);
+        Assertions.assertEquals(200, getMessage());
+        ExecutorService executor = app.getBean("virtualThreadExecutor", ExecutorService.class);
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        Assertions.assertEquals(Boolean.TRUE,
+                executor.submit(() -> isVirtual.invoke(Thread.currentThread())).get());
+        System.out.println("app.threads.virtual=true: requests run on virtual threads on Java " + feature);
+    }
+}